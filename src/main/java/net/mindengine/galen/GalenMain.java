@@ -24,6 +24,7 @@ import java.io.IOException;
 import java.io.StringWriter;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
+import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
@@ -31,7 +32,9 @@ import java.util.concurrent.Executors;
 import java.util.regex.Pattern;
 
 import net.mindengine.galen.browser.SeleniumBrowserFactory;
+import net.mindengine.galen.browser.SnapshotBrowserFactory;
 import net.mindengine.galen.config.GalenConfig;
+import net.mindengine.galen.page.snapshot.PageSnapshotStorage;
 import net.mindengine.galen.reports.ConsoleReportingListener;
 import net.mindengine.galen.reports.HtmlReportingListener;
 import net.mindengine.galen.reports.TestngReportingListener;
@@ -39,6 +42,7 @@ import net.mindengine.galen.runner.CombinedListener;
 import net.mindengine.galen.runner.CompleteListener;
 import net.mindengine.galen.runner.GalenArguments;
 import net.mindengine.galen.runner.GalenSuiteRunner;
+import net.mindengine.galen.specs.reader.page.CompiledPageSpecStorage;
 import net.mindengine.galen.suite.GalenPageAction;
 import net.mindengine.galen.suite.GalenPageTest;
 import net.mindengine.galen.suite.GalenSuite;
@@ -69,6 +73,12 @@ public class GalenMain {
             else if ("check".equals(arguments.getAction())) {
                 performCheck(arguments, combinedListener);
             }
+            else if ("recheck".equals(arguments.getAction())) {
+                performRecheck(arguments, combinedListener);
+            }
+            else if ("compile".equals(arguments.getAction())) {
+                performCompile(arguments);
+            }
             else if ("config".equals(arguments.getAction())) {
                 performConfig();
             }
@@ -177,6 +187,98 @@ public class GalenMain {
         runSuites(arguments, galenSuites, listener);
     }
 
+    private void performRecheck(GalenArguments arguments, CombinedListener listener) throws IOException {
+        List<File> snapshotFiles = findSnapshots(arguments.getSnapshot());
+        
+        List<GalenSuite> galenSuites = new LinkedList<GalenSuite>();
+        for (File snapshotFile : snapshotFiles) {
+            GalenSuite suite = new GalenSuite();
+            
+            String name = snapshotFile.getName();
+            suite.setName(name.substring(0, name.length() - PageSnapshotStorage.SNAPSHOT_EXTENSION.length()));
+            
+            suite.setPageTests(asList(new GalenPageTest()
+                .withTitle(suite.getName())
+                .withBrowserFactory(new SnapshotBrowserFactory(snapshotFile))
+                .withActions(asList((GalenPageAction)new GalenPageActionCheck()
+                    .withSpecs(arguments.getPaths())
+                    .withIncludedTags(arguments.getIncludedTags())
+                    .withExcludedTags(arguments.getExcludedTags())
+                    .withOriginalCommand(arguments.getOriginal()))
+                )));
+            
+            galenSuites.add(suite);
+        }
+        
+        runSuites(arguments, galenSuites, listener);
+    }
+
+    /**
+     * Compiles all given spec files and spec files in given folders, so that they are loaded faster in further runs
+     */
+    public void performCompile(GalenArguments arguments) throws IOException {
+        List<File> specFiles = new LinkedList<File>();
+        for (String path : arguments.getPaths()) {
+            File file = new File(path);
+            if (!file.exists()) {
+                throw new FileNotFoundException(path);
+            }
+            else if (file.isDirectory()) {
+                searchForSpecs(file, specFiles);
+            }
+            else {
+                specFiles.add(file);
+            }
+        }
+        
+        for (File specFile : specFiles) {
+            File compiledFile = CompiledPageSpecStorage.compile(specFile);
+            if (compiledFile != null) {
+                System.out.println("Compiled " + specFile.getPath());
+            }
+            else {
+                System.out.println("Skipped " + specFile.getPath() + ": templates use javascript or are placed after multi objects and depend on the checked page");
+            }
+        }
+    }
+
+    private void searchForSpecs(File file, List<File> files) {
+        if (file.isFile() && file.getName().toLowerCase().endsWith(".spec")) {
+            files.add(file);
+        }
+        else if (file.isDirectory()) {
+            for (File childFile : file.listFiles()) {
+                searchForSpecs(childFile, files);
+            }
+        }
+    }
+
+    private List<File> findSnapshots(String path) throws FileNotFoundException {
+        File file = new File(path);
+        if (!file.exists()) {
+            throw new FileNotFoundException(path);
+        }
+        
+        List<File> snapshotFiles = new LinkedList<File>();
+        if (file.isDirectory()) {
+            File[] childFiles = file.listFiles();
+            Arrays.sort(childFiles);
+            for (File childFile : childFiles) {
+                if (childFile.isFile() && childFile.getName().endsWith(PageSnapshotStorage.SNAPSHOT_EXTENSION)) {
+                    snapshotFiles.add(childFile);
+                }
+            }
+        }
+        else {
+            snapshotFiles.add(file);
+        }
+        
+        if (snapshotFiles.isEmpty()) {
+            throw new RuntimeException("Couldn't find any page snapshots in " + path);
+        }
+        return snapshotFiles;
+    }
+
     private void verifyArgumentsForPageCheck(GalenArguments arguments) {
         if (arguments.getUrl() == null) {
             throw new IllegalArgumentException("Url is not specified");
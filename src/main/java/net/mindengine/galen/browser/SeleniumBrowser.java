@@ -17,10 +17,12 @@ package net.mindengine.galen.browser;
 
 import java.awt.Dimension;
 import java.io.File;
+import java.util.concurrent.Future;
 
 
 import net.mindengine.galen.config.GalenConfig;
 import net.mindengine.galen.page.Page;
+import net.mindengine.galen.page.PageScreenshot;
 import net.mindengine.galen.page.selenium.SeleniumPage;
 import net.mindengine.galen.utils.GalenUtils;
 
@@ -32,6 +34,12 @@ import org.openqa.selenium.WebDriver;
 public class SeleniumBrowser implements Browser {
 
     private WebDriver driver;
+    
+    private int pageStateVersion = 0;
+    private PageScreenshot screenshot;
+    private int screenshotVersion = -1;
+    private PageScreenshot fullPageScreenshot;
+    private int fullPageScreenshotVersion = -1;
 
     public SeleniumBrowser(WebDriver driver) {
         this.driver = driver;
@@ -48,22 +56,25 @@ public class SeleniumBrowser implements Browser {
 
     @Override
     public void changeWindowSize(Dimension windowSize) {
+        invalidatePageState();
         driver.manage().window().setSize(new org.openqa.selenium.Dimension(windowSize.width, windowSize.height));
     }
 
     @Override
     public void load(String url) {
+        invalidatePageState();
         driver.get(url);
     }
 
     @Override
     public void executeJavascript(String javascript) {
+        invalidatePageState();
         ((JavascriptExecutor)driver).executeScript(javascript);
     }
 
     @Override
     public Page getPage() {
-        return new SeleniumPage(driver);
+        return new SeleniumPage(driver, this);
     }
 
     @Override
@@ -79,24 +90,62 @@ public class SeleniumBrowser implements Browser {
 
     @Override
     public String createScreenshot() {
-        if (GalenConfig.getConfig().getBooleanProperty("galen.browser.screenshots.fullPage", false)) {
-            try {
-                return GalenUtils.makeFullScreenshot(driver);
-            } catch (Exception e) {
-                throw new RuntimeException("Error making screenshot", e);
+        try {
+            return createScreenshotFile().get().getAbsolutePath();
+        } catch (Exception e) {
+            throw new RuntimeException("Error making screenshot", e);
+        }
+    }
+    
+    /**
+     * Takes the screenshot for reports. Full page screenshots that had to be assembled from parts
+     * are encoded to png in background, so the returned file should be waited for only when it is read
+     */
+    public synchronized Future<File> createScreenshotFile() {
+        try {
+            if (GalenConfig.getConfig().getBooleanProperty("galen.browser.screenshots.fullPage", false)) {
+                if (fullPageScreenshot == null || fullPageScreenshotVersion != pageStateVersion) {
+                    fullPageScreenshot = GalenUtils.makeFullPageScreenshot(driver);
+                    fullPageScreenshotVersion = pageStateVersion;
+                }
+                return fullPageScreenshot.getFileInBackground();
+            }
+            else {
+                return getScreenshot().getFileInBackground();
             }
+        } catch (Exception e) {
+            throw new RuntimeException("Error making screenshot", e);
         }
-        else return makeSimpleScreenshot();
     }
     
-    private String makeSimpleScreenshot() {
-        File file = ((TakesScreenshot)driver).getScreenshotAs(OutputType.FILE);
-        return file.getAbsolutePath();
+    /**
+     * Returns the screenshot of the current page state.
+     * The screenshot is taken only once and is shared by reports and all pages until the page state changes
+     */
+    public synchronized PageScreenshot getScreenshot() {
+        if (screenshot == null || screenshotVersion != pageStateVersion) {
+            screenshot = new PageScreenshot(((TakesScreenshot)driver).getScreenshotAs(OutputType.BYTES));
+            screenshotVersion = pageStateVersion;
+        }
+        return screenshot;
     }
     
     @Override
     public void refresh() {
+        invalidatePageState();
         driver.navigate().refresh();
     }
 
+    /**
+     * Tells browser that the page might have been changed
+     * so all data that was cached for the current page state (e.g. screenshots) is outdated
+     */
+    public synchronized void invalidatePageState() {
+        pageStateVersion++;
+    }
+
+    public synchronized int getPageStateVersion() {
+        return pageStateVersion;
+    }
+
 }
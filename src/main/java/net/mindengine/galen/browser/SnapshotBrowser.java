@@ -0,0 +1,90 @@
+/*******************************************************************************
+* Copyright 2014 Ivan Shubin http://mindengine.net
+* 
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+* 
+*   http://www.apache.org/licenses/LICENSE-2.0
+* 
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+******************************************************************************/
+package net.mindengine.galen.browser;
+
+import java.awt.Dimension;
+import java.io.File;
+
+import net.mindengine.galen.page.Page;
+import net.mindengine.galen.page.snapshot.PageSnapshot;
+
+/**
+ * Browser which is backed by a stored page snapshot.
+ * It doesn't allow any interaction with the page and is used only for rechecking specs
+ * @author ishubin
+ *
+ */
+public class SnapshotBrowser implements Browser {
+
+    private PageSnapshot snapshot;
+    private String url;
+    private Dimension screenSize;
+    private File screenshotFile;
+
+    public SnapshotBrowser(PageSnapshot snapshot, String url, Dimension screenSize, File screenshotFile) {
+        this.snapshot = snapshot;
+        this.url = url;
+        this.screenSize = screenSize;
+        this.screenshotFile = screenshotFile;
+    }
+
+    @Override
+    public void quit() {
+    }
+
+    @Override
+    public void changeWindowSize(Dimension screenSize) {
+        throw new UnsupportedOperationException("Cannot resize a page snapshot");
+    }
+
+    @Override
+    public void load(String url) {
+        throw new UnsupportedOperationException("Cannot load url in a page snapshot");
+    }
+
+    @Override
+    public void executeJavascript(String javascript) {
+        throw new UnsupportedOperationException("Cannot execute javascript in a page snapshot");
+    }
+
+    @Override
+    public Page getPage() {
+        return snapshot;
+    }
+
+    @Override
+    public void refresh() {
+    }
+
+    @Override
+    public String getUrl() {
+        return url;
+    }
+
+    @Override
+    public Dimension getScreenSize() {
+        return screenSize;
+    }
+
+    @Override
+    public String createScreenshot() {
+        if (screenshotFile == null) {
+            throw new RuntimeException("There is no screenshot stored for page snapshot");
+        }
+        return screenshotFile.getAbsolutePath();
+    }
+
+}
@@ -0,0 +1,79 @@
+/*******************************************************************************
+* Copyright 2014 Ivan Shubin http://mindengine.net
+* 
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+* 
+*   http://www.apache.org/licenses/LICENSE-2.0
+* 
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+******************************************************************************/
+package net.mindengine.galen.browser;
+
+import java.io.File;
+import java.io.IOException;
+
+import net.mindengine.galen.page.snapshot.PageSnapshotStorage;
+
+import org.apache.commons.lang3.builder.EqualsBuilder;
+import org.apache.commons.lang3.builder.HashCodeBuilder;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+
+/**
+ * Opens a stored page snapshot instead of a real browser
+ * @author ishubin
+ *
+ */
+public class SnapshotBrowserFactory implements BrowserFactory {
+
+    private File snapshotFile;
+
+    public SnapshotBrowserFactory(File snapshotFile) {
+        this.snapshotFile = snapshotFile;
+    }
+
+    @Override
+    public Browser openBrowser() {
+        try {
+            return PageSnapshotStorage.load(snapshotFile);
+        } catch (IOException e) {
+            throw new RuntimeException("Couldn't load page snapshot " + snapshotFile.getAbsolutePath(), e);
+        }
+    }
+
+    public File getSnapshotFile() {
+        return snapshotFile;
+    }
+
+    public void setSnapshotFile(File snapshotFile) {
+        this.snapshotFile = snapshotFile;
+    }
+
+    @Override
+    public int hashCode() {
+        return new HashCodeBuilder().append(snapshotFile).toHashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == null)
+            return false;
+        if (obj == this)
+            return true;
+        if (!(obj instanceof SnapshotBrowserFactory))
+            return false;
+        
+        SnapshotBrowserFactory rhs = (SnapshotBrowserFactory)obj;
+        return new EqualsBuilder().append(snapshotFile, rhs.snapshotFile).isEquals();
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this).append("snapshotFile", snapshotFile).toString();
+    }
+}
@@ -0,0 +1,393 @@
+/*******************************************************************************
+* Copyright 2014 Ivan Shubin http://mindengine.net
+* 
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+* 
+*   http://www.apache.org/licenses/LICENSE-2.0
+* 
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+******************************************************************************/
+package net.mindengine.galen.page;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.FileImageInputStream;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.MemoryCacheImageInputStream;
+
+import net.mindengine.galen.config.GalenConfig;
+
+import org.apache.commons.io.FileUtils;
+
+/**
+ * Screenshot which is captured once as encoded png bytes and is decoded in memory only when needed.
+ * The same screenshot could be used both for reports and for image based validations.
+ * Tall screenshots are decoded strip by strip into {@link TiledScreenshot} so that they are never kept in java heap
+ * and validations should read only the regions they need with {@link #getRegion(Rect)}
+ * @author ishubin
+ *
+ */
+public class PageScreenshot {
+    
+    private static final int TILED_MIN_HEIGHT = GalenConfig.getConfig().getIntProperty("galen.screenshots.tiled.minHeight", 3000, 0, Integer.MAX_VALUE);
+    
+    private static ExecutorService encoder;
+
+    private byte[] bytes;
+    private BufferedImage image;
+    private TiledScreenshot tiledImage;
+    private File file;
+    private Future<File> pendingFile;
+    private ScreenshotColorIndex colorIndex;
+    private int width = -1;
+    private int height = -1;
+
+    public PageScreenshot(byte[] bytes) {
+        this.bytes = bytes;
+    }
+    
+    /**
+     * @param file - png file which will be read only when the screenshot is needed
+     */
+    public PageScreenshot(File file) {
+        this.file = file;
+    }
+    
+    public PageScreenshot(BufferedImage image) {
+        this.image = toByteBasedImage(image);
+        this.width = image.getWidth();
+        this.height = image.getHeight();
+    }
+    
+    /**
+     * Screenshot that was already assembled in tiles, e.g. a full page screenshot stitched from its parts.
+     * Its png file is encoded in background once it is requested with {@link #getFileInBackground()}
+     */
+    public PageScreenshot(TiledScreenshot tiledImage) {
+        this.tiledImage = tiledImage;
+        this.width = tiledImage.getWidth();
+        this.height = tiledImage.getHeight();
+    }
+    
+    /**
+     * Gives the screenshot of page. Pages of Galen share their screenshot so that it is decoded only once,
+     * for all other pages the screenshot is created from {@link Page#getScreenshotImage()}
+     * @return screenshot or null if page doesn't have it
+     */
+    public static PageScreenshot fromPage(Page page) {
+        if (page instanceof ScreenshotProvider) {
+            return ((ScreenshotProvider) page).getScreenshot();
+        }
+        
+        BufferedImage image = page.getScreenshotImage();
+        if (image != null) {
+            return new PageScreenshot(image);
+        }
+        return null;
+    }
+
+    public synchronized byte[] getBytes() throws IOException {
+        if (bytes == null) {
+            bytes = FileUtils.readFileToByteArray(getFile());
+        }
+        return bytes;
+    }
+    
+    /**
+     * Reads only the header of encoded screenshot, so it doesn't decode the image
+     */
+    public synchronized int getWidth() throws IOException {
+        readSize();
+        return width;
+    }
+    
+    /**
+     * Reads only the header of encoded screenshot, so it doesn't decode the image
+     */
+    public synchronized int getHeight() throws IOException {
+        readSize();
+        return height;
+    }
+    
+    private void readSize() throws IOException {
+        if (width < 0) {
+            ImageReader reader = createReader();
+            try {
+                width = reader.getWidth(0);
+                height = reader.getHeight(0);
+            }
+            finally {
+                dispose(reader);
+            }
+        }
+    }
+    
+    /**
+     * Reads only the specified area of screenshot
+     * @param area - should be inside of the screenshot
+     * @return a copy of the screenshot area with the same pixel format as the screenshot image
+     * @throws IOException
+     */
+    public BufferedImage getRegion(Rect area) throws IOException {
+        if (decode()) {
+            if (area.getLeft() < 0 || area.getTop() < 0 || area.getWidth() <= 0 || area.getHeight() <= 0
+                    || area.getLeft() + area.getWidth() > image.getWidth() || area.getTop() + area.getHeight() > image.getHeight()) {
+                throw new IllegalArgumentException("Area " + area + " is outside of screenshot " + image.getWidth() + "x" + image.getHeight());
+            }
+            BufferedImage region = new BufferedImage(image.getColorModel(), 
+                    image.getColorModel().createCompatibleWritableRaster(area.getWidth(), area.getHeight()), 
+                    image.isAlphaPremultiplied(), null);
+            region.getRaster().setRect(image.getRaster().createChild(area.getLeft(), area.getTop(), area.getWidth(), area.getHeight(), 0, 0, null));
+            return region;
+        }
+        else {
+            return tiledImage.getRegion(area);
+        }
+    }
+
+    /**
+     * Reads a single pixel of screenshot
+     * @return red, green and blue samples of the pixel packed in the same way as in {@link BufferedImage#getRGB(int, int)} without alpha
+     * @throws IOException
+     */
+    public int getRGB(int x, int y) throws IOException {
+        if (decode()) {
+            return image.getRGB(x, y) & 0xffffff;
+        }
+        else {
+            return tiledImage.getRGB(x, y);
+        }
+    }
+
+    /**
+     * @return color index which is shared by all color scheme checks of this screenshot
+     */
+    public synchronized ScreenshotColorIndex getColorIndex() {
+        if (colorIndex == null) {
+            colorIndex = new ScreenshotColorIndex(this);
+        }
+        return colorIndex;
+    }
+
+    /**
+     * Gives the whole screenshot image. For tall screenshots it is better to use {@link #getRegion(Rect)}
+     * as the image will be assembled from tiles each time
+     */
+    public BufferedImage getImage() throws IOException {
+        if (decode()) {
+            return image;
+        }
+        else {
+            return tiledImage.getRegion(new Rect(0, 0, tiledImage.getWidth(), tiledImage.getHeight()));
+        }
+    }
+    
+    /**
+     * @return true if the screenshot was decoded into a single image, false if it is kept in tiles
+     */
+    private synchronized boolean decode() throws IOException {
+        if (image == null && tiledImage == null) {
+            ImageReader reader = createReader();
+            try {
+                width = reader.getWidth(0);
+                height = reader.getHeight(0);
+                
+                if (height >= TILED_MIN_HEIGHT) {
+                    tiledImage = decodeTiles(reader, width, height);
+                }
+                else {
+                    image = toByteBasedImage(reader.read(0));
+                }
+            }
+            finally {
+                dispose(reader);
+            }
+        }
+        return image != null;
+    }
+
+    /**
+     * Decodes the image strip by strip so that only one strip of it is kept in java heap at once.
+     * As reader has to decompress the image from its beginning for every strip,
+     * the strips are as tall as the smallest screenshot that is kept in tiles
+     */
+    private static TiledScreenshot decodeTiles(ImageReader reader, int width, int height) throws IOException {
+        int stripHeight = Math.max(TiledScreenshot.STRIP_HEIGHT, TILED_MIN_HEIGHT);
+        
+        TiledScreenshot tiles = null;
+        for (int top = 0; top < height; top += stripHeight) {
+            ImageReadParam param = reader.getDefaultReadParam();
+            param.setSourceRegion(new Rectangle(0, top, width, Math.min(stripHeight, height - top)));
+            BufferedImage strip = reader.read(0, param);
+            
+            if (tiles == null) {
+                tiles = new TiledScreenshot(width, height, strip.getColorModel().hasAlpha());
+            }
+            tiles.writeImage(strip, top);
+        }
+        return tiles;
+    }
+
+    private ImageReader createReader() throws IOException {
+        ImageInputStream input;
+        if (bytes != null) {
+            input = new MemoryCacheImageInputStream(new ByteArrayInputStream(bytes));
+        }
+        else {
+            input = new FileImageInputStream(file);
+        }
+        
+        Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+        if (!readers.hasNext()) {
+            input.close();
+            throw new IOException("Cannot decode screenshot");
+        }
+        ImageReader reader = readers.next();
+        reader.setInput(input);
+        return reader;
+    }
+
+    private static void dispose(ImageReader reader) throws IOException {
+        ImageInputStream input = (ImageInputStream) reader.getInput();
+        reader.dispose();
+        input.close();
+    }
+
+    /**
+     * Writes the encoded screenshot to a temporary file only once.
+     * Waits for the file in case it is being encoded in background
+     * @return the temporary png file
+     * @throws IOException
+     */
+    public File getFile() throws IOException {
+        Future<File> futureFile = getFileInBackground();
+        try {
+            return futureFile.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while writing screenshot", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Couldn't write screenshot", e.getCause());
+        }
+    }
+    
+    /**
+     * Writes the screenshot to a temporary png file only once. Screenshots that were assembled in tiles
+     * are encoded in background so the caller doesn't have to wait until the file is actually read.
+     * All other screenshots are written right away
+     * @return the temporary png file which could still be being written
+     * @throws IOException
+     */
+    public synchronized Future<File> getFileInBackground() throws IOException {
+        if (pendingFile == null) {
+            if (bytes == null && file == null && image == null) {
+                final TiledScreenshot tiles = tiledImage;
+                FutureTask<File> task = new FutureTask<File>(new Callable<File>() {
+                    @Override
+                    public File call() throws IOException {
+                        File tempFile = createTempFile();
+                        ImageIO.write(tiles, "png", tempFile);
+                        return tempFile;
+                    }
+                });
+                getEncoder().execute(task);
+                pendingFile = task;
+            }
+            else {
+                if (file == null) {
+                    File tempFile = createTempFile();
+                    writeTo(tempFile);
+                    file = tempFile;
+                }
+                pendingFile = writtenFile(file);
+            }
+        }
+        return pendingFile;
+    }
+    
+    /**
+     * Writes the screenshot as png file. Encoded screenshots are written as is, without decoding
+     * @throws IOException
+     */
+    public synchronized void writeTo(File targetFile) throws IOException {
+        if (bytes != null) {
+            FileUtils.writeByteArrayToFile(targetFile, bytes);
+        }
+        else if (file != null) {
+            FileUtils.copyFile(file, targetFile);
+        }
+        else if (image != null) {
+            ImageIO.write(image, "png", targetFile);
+        }
+        else {
+            FileUtils.copyFile(getFile(), targetFile);
+        }
+    }
+
+    private static File createTempFile() throws IOException {
+        File tempFile = File.createTempFile("screenshot", ".png");
+        tempFile.deleteOnExit();
+        return tempFile;
+    }
+
+    private static Future<File> writtenFile(final File file) {
+        FutureTask<File> task = new FutureTask<File>(new Callable<File>() {
+            @Override
+            public File call() {
+                return file;
+            }
+        });
+        task.run();
+        return task;
+    }
+
+    private static synchronized ExecutorService getEncoder() {
+        if (encoder == null) {
+            encoder = Executors.newCachedThreadPool(new ThreadFactory() {
+                private final AtomicInteger counter = new AtomicInteger();
+                
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "galen-screenshot-encoder-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return encoder;
+    }
+
+    /**
+     * Color scheme validation reads pixels directly from byte buffer as red, green, blue and optional alpha
+     * samples in this order, so all other image types (including TYPE_3BYTE_BGR returned by ImageIO) have to be converted
+     */
+    private static BufferedImage toByteBasedImage(BufferedImage image) {
+        return TiledScreenshot.convert(image, image.getColorModel().hasAlpha());
+    }
+
+}
@@ -0,0 +1,343 @@
+/*******************************************************************************
+* Copyright 2014 Ivan Shubin http://mindengine.net
+* 
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+* 
+*   http://www.apache.org/licenses/LICENSE-2.0
+* 
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+******************************************************************************/
+package net.mindengine.galen.page;
+
+import java.awt.Color;
+import java.awt.color.ColorSpace;
+import java.awt.image.BufferedImage;
+import java.awt.image.ComponentColorModel;
+import java.awt.image.DirectColorModel;
+import java.awt.image.WritableRaster;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Calculates the percentage of a color in any area of screenshot.
+ * Colors are compared in the same way as in rainbow4j spectrum: each channel is quantized with the given precision
+ * and should be within the quantized test range from the expected color.
+ * The screenshot is split into horizontal bands. Once the same color is checked in parts of a band
+ * which in total are bigger than the band, a summed-area table of matching pixels is built for it
+ * so that all further checks of this color in that band take constant time regardless of the area size.
+ * This way tall screenshots get tables only for the bands that are actually checked
+ * @author ishubin
+ *
+ */
+public class ScreenshotColorIndex {
+    
+    private static final int STRIP_HEIGHT = 256;
+    private static final int BAND_HEIGHT = 4 * STRIP_HEIGHT;
+    private static final long MAX_TABLES_SIZE = 32000000;
+    private static final int SAMPLING_MIN_RATIO = 4;
+    private static final double Z_99 = 2.576;
+
+    private final PageScreenshot screenshot;
+    
+    private final Map<String, Long> scannedPixels = new HashMap<String, Long>();
+    
+    private final Map<String, int[]> tables = new LinkedHashMap<String, int[]>(16, 0.75f, true);
+    private long tablesSize = 0;
+    
+    public ScreenshotColorIndex(PageScreenshot screenshot) {
+        this.screenshot = screenshot;
+    }
+    
+    /**
+     * @param area - area of screenshot which should be inside of it
+     * @param color - expected color
+     * @param range - test range for each color channel (0 - 256)
+     * @param precision - amount of color levels in each channel (8 - 256)
+     * @return percentage of pixels in area with the color close to the expected one
+     * @throws IOException
+     */
+    public float getPercentage(Rect area, Color color, int range, int precision) throws IOException {
+        if (precision < 8 || precision > 256) {
+            throw new IllegalArgumentException("Precision should be between 8 and 256");
+        }
+        
+        ColorFilter filter = new ColorFilter(color, range, precision);
+        long areaPixels = (long) area.getWidth() * area.getHeight();
+        
+        long matchingPixels = 0;
+        for (int band = area.getTop() / BAND_HEIGHT; band * BAND_HEIGHT < area.getTop() + area.getHeight(); band++) {
+            int top = Math.max(area.getTop(), band * BAND_HEIGHT);
+            int bottom = Math.min(area.getTop() + area.getHeight(), (band + 1) * BAND_HEIGHT);
+            Rect bandArea = new Rect(area.getLeft(), top, area.getWidth(), bottom - top);
+            
+            int[] table = findOrBuildTable(filter, band, (long) bandArea.getWidth() * bandArea.getHeight());
+            if (table != null) {
+                matchingPixels += sumTable(table, bandArea, band * BAND_HEIGHT);
+            }
+            else {
+                matchingPixels += countPixels(filter, bandArea);
+            }
+        }
+        return 100.0f * matchingPixels / areaPixels;
+    }
+
+    /**
+     * Estimates the percentage of a color from a stratified sample of pixels: the area is split into a grid
+     * and one randomly picked pixel is taken from each of its cells. Only the sampled pixels are read from screenshot.
+     * If the area is not much bigger than the sample or summed-area tables are already built for this color
+     * in all bands of the area then the exact percentage is returned with zero margin
+     * @param sampleSize - desired amount of pixels in sample
+     * @return estimated percentage with the margin of 99% confidence interval
+     * @throws IOException
+     */
+    public Estimate estimatePercentage(Rect area, Color color, int range, int precision, int sampleSize) throws IOException {
+        ColorFilter filter = new ColorFilter(color, range, precision);
+        long areaPixels = (long) area.getWidth() * area.getHeight();
+        
+        if (hasTables(filter, area) || sampleSize <= 0 || areaPixels <= (long) SAMPLING_MIN_RATIO * sampleSize) {
+            return new Estimate(getPercentage(area, color, range, precision), 0);
+        }
+        
+        double cellSize = Math.sqrt((double) areaPixels / sampleSize);
+        int columns = Math.max(1, Math.min(area.getWidth(), (int) Math.round(area.getWidth() / cellSize)));
+        int rows = Math.max(1, Math.min(area.getHeight(), (int) Math.round(area.getHeight() / cellSize)));
+        
+        // fixed seed makes the same check give the same result on every run
+        Random random = new Random(area.hashCode() * 31L + filter.getKey().hashCode());
+        long matchingPixels = 0;
+        
+        for (int row = 0; row < rows; row++) {
+            int cellTop = area.getTop() + (int) ((long) row * area.getHeight() / rows);
+            int cellBottom = area.getTop() + (int) ((long) (row + 1) * area.getHeight() / rows);
+            
+            for (int column = 0; column < columns; column++) {
+                int cellLeft = area.getLeft() + (int) ((long) column * area.getWidth() / columns);
+                int cellRight = area.getLeft() + (int) ((long) (column + 1) * area.getWidth() / columns);
+                int rgb = screenshot.getRGB(cellLeft + random.nextInt(cellRight - cellLeft), cellTop + random.nextInt(cellBottom - cellTop));
+                if (filter.matches((rgb >> 16) & 0xff, (rgb >> 8) & 0xff, rgb & 0xff)) {
+                    matchingPixels++;
+                }
+            }
+        }
+        
+        long samplePixels = (long) rows * columns;
+        double share = (double) matchingPixels / samplePixels;
+        double finitePopulation = Math.sqrt((double) (areaPixels - samplePixels) / (areaPixels - 1));
+        double margin = Z_99 * Math.sqrt(share * (1 - share) / samplePixels) * finitePopulation + 1.0 / samplePixels;
+        
+        return new Estimate((float) (100 * share), (float) (100 * margin));
+    }
+
+    private synchronized boolean hasTables(ColorFilter filter, Rect area) {
+        for (int band = area.getTop() / BAND_HEIGHT; band * BAND_HEIGHT < area.getTop() + area.getHeight(); band++) {
+            if (!tables.containsKey(tableKey(filter, band))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private synchronized int[] findOrBuildTable(ColorFilter filter, int band, long areaPixels) throws IOException {
+        String key = tableKey(filter, band);
+        int[] table = tables.get(key);
+        if (table == null) {
+            long bandPixels = (long) screenshot.getWidth() * bandHeight(band);
+            Long scanned = scannedPixels.get(key);
+            long totalScanned = (scanned != null ? scanned : 0L) + areaPixels;
+            
+            if (totalScanned >= bandPixels && bandPixels <= MAX_TABLES_SIZE) {
+                table = buildTable(filter, band);
+                putTable(key, table);
+                scannedPixels.remove(key);
+            }
+            else {
+                scannedPixels.put(key, totalScanned);
+            }
+        }
+        return table;
+    }
+
+    /**
+     * Keeps the total size of tables within the limit by removing the least recently used ones
+     */
+    private void putTable(String key, int[] table) {
+        tables.put(key, table);
+        tablesSize += table.length;
+        
+        Iterator<Map.Entry<String, int[]>> iterator = tables.entrySet().iterator();
+        while (tablesSize > MAX_TABLES_SIZE && tables.size() > 1) {
+            tablesSize -= iterator.next().getValue().length;
+            iterator.remove();
+        }
+    }
+
+    private static String tableKey(ColorFilter filter, int band) {
+        return filter.getKey() + "#" + band;
+    }
+
+    private int bandHeight(int band) throws IOException {
+        return Math.min(BAND_HEIGHT, screenshot.getHeight() - band * BAND_HEIGHT);
+    }
+
+    private long sumTable(int[] table, Rect area, int bandTop) throws IOException {
+        int stride = screenshot.getWidth() + 1;
+        int left = area.getLeft();
+        int top = area.getTop() - bandTop;
+        int right = left + area.getWidth();
+        int bottom = top + area.getHeight();
+        return (long) table[bottom * stride + right] - table[top * stride + right] - table[bottom * stride + left] + table[top * stride + left];
+    }
+
+    private long countPixels(final ColorFilter filter, Rect area) throws IOException {
+        final long[] count = {0};
+        scanRows(area, new RowVisitor() {
+            @Override
+            public void visitRow(int y, int[] rgb, int width) {
+                for (int x = 0; x < width; x++) {
+                    if (filter.matches(rgb[3 * x], rgb[3 * x + 1], rgb[3 * x + 2])) {
+                        count[0]++;
+                    }
+                }
+            }
+        });
+        return count[0];
+    }
+
+    private int[] buildTable(final ColorFilter filter, int band) throws IOException {
+        final int stride = screenshot.getWidth() + 1;
+        final int[] table = new int[stride * (bandHeight(band) + 1)];
+        
+        scanRows(new Rect(0, band * BAND_HEIGHT, screenshot.getWidth(), bandHeight(band)), new RowVisitor() {
+            @Override
+            public void visitRow(int y, int[] rgb, int width) {
+                int rowSum = 0;
+                int offset = (y + 1) * stride;
+                for (int x = 0; x < width; x++) {
+                    if (filter.matches(rgb[3 * x], rgb[3 * x + 1], rgb[3 * x + 2])) {
+                        rowSum++;
+                    }
+                    table[offset + x + 1] = table[offset - stride + x + 1] + rowSum;
+                }
+            }
+        });
+        return table;
+    }
+
+    /**
+     * Reads the area in horizontal strips so that tiled screenshots are never loaded completely
+     */
+    private void scanRows(Rect area, RowVisitor visitor) throws IOException {
+        int width = area.getWidth();
+        int[] rgb = new int[width * 3];
+        
+        for (int stripTop = area.getTop(); stripTop < area.getTop() + area.getHeight(); stripTop += STRIP_HEIGHT) {
+            int rows = Math.min(STRIP_HEIGHT, area.getTop() + area.getHeight() - stripTop);
+            BufferedImage strip = toRGBImage(screenshot.getRegion(new Rect(area.getLeft(), stripTop, width, rows)));
+            WritableRaster raster = strip.getRaster();
+            int bands = raster.getNumBands();
+            int[] samples = new int[width * bands];
+            
+            for (int y = 0; y < rows; y++) {
+                raster.getPixels(0, y, width, 1, samples);
+                for (int x = 0; x < width; x++) {
+                    rgb[3 * x] = samples[x * bands];
+                    rgb[3 * x + 1] = samples[x * bands + 1];
+                    rgb[3 * x + 2] = samples[x * bands + 2];
+                }
+                visitor.visitRow(stripTop - area.getTop() + y, rgb, width);
+            }
+        }
+    }
+    
+    /**
+     * Makes sure that first three bands of image raster are red, green and blue 8-bit samples
+     */
+    private static BufferedImage toRGBImage(BufferedImage image) {
+        boolean rgbBands = (image.getColorModel() instanceof ComponentColorModel || image.getColorModel() instanceof DirectColorModel)
+                && image.getColorModel().getColorSpace().getType() == ColorSpace.TYPE_RGB
+                && image.getRaster().getNumBands() >= 3
+                && image.getColorModel().getComponentSize(0) == 8;
+        if (rgbBands) {
+            return image;
+        }
+        return TiledScreenshot.convert(image, false);
+    }
+    
+    public static class Estimate {
+        private final float percentage;
+        private final float margin;
+        
+        public Estimate(float percentage, float margin) {
+            this.percentage = percentage;
+            this.margin = margin;
+        }
+
+        public float getPercentage() {
+            return percentage;
+        }
+
+        /**
+         * @return margin of the confidence interval in percents. Zero for exact percentage
+         */
+        public float getMargin() {
+            return margin;
+        }
+        
+        public boolean isExact() {
+            return margin == 0;
+        }
+    }
+    
+    private interface RowVisitor {
+        void visitRow(int y, int[] rgb, int width);
+    }
+    
+    private static class ColorFilter {
+        private final boolean[] red;
+        private final boolean[] green;
+        private final boolean[] blue;
+        private final String key;
+        
+        public ColorFilter(Color color, int range, int precision) {
+            int quantizedRange = quantize(range, precision);
+            this.red = channelFilter(quantize(color.getRed(), precision), quantizedRange, precision);
+            this.green = channelFilter(quantize(color.getGreen(), precision), quantizedRange, precision);
+            this.blue = channelFilter(quantize(color.getBlue(), precision), quantizedRange, precision);
+            this.key = String.format("%d:%d:%d", color.getRGB() & 0xffffff, quantizedRange, precision);
+        }
+        
+        private static int quantize(int value, int precision) {
+            return Math.min(value * precision / 256, precision - 1);
+        }
+        
+        private static boolean[] channelFilter(int quantizedValue, int quantizedRange, int precision) {
+            int min = Math.max(0, quantizedValue - quantizedRange);
+            int max = Math.min(quantizedValue + quantizedRange, precision - 1);
+            
+            boolean[] filter = new boolean[256];
+            for (int value = 0; value < 256; value++) {
+                int quantized = quantize(value, precision);
+                filter[value] = quantized >= min && quantized <= max;
+            }
+            return filter;
+        }
+        
+        public boolean matches(int r, int g, int b) {
+            return red[r] && green[g] && blue[b];
+        }
+        
+        public String getKey() {
+            return key;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+/*******************************************************************************
+* Copyright 2014 Ivan Shubin http://mindengine.net
+* 
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+* 
+*   http://www.apache.org/licenses/LICENSE-2.0
+* 
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+******************************************************************************/
+package net.mindengine.galen.page;
+
+/**
+ * Page which keeps its screenshot as {@link PageScreenshot} so that it is captured and decoded only once
+ * and validations could read only the regions they need
+ * @author ishubin
+ *
+ */
+public interface ScreenshotProvider {
+
+    PageScreenshot getScreenshot();
+
+}
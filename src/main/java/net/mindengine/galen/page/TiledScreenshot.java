@@ -0,0 +1,304 @@
+/*******************************************************************************
+* Copyright 2014 Ivan Shubin http://mindengine.net
+* 
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+* 
+*   http://www.apache.org/licenses/LICENSE-2.0
+* 
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+******************************************************************************/
+package net.mindengine.galen.page;
+
+import java.awt.Graphics2D;
+import java.awt.Image;
+import java.awt.Rectangle;
+import java.awt.Transparency;
+import java.awt.color.ColorSpace;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.ComponentColorModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.PixelInterleavedSampleModel;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.awt.image.SampleModel;
+import java.awt.image.WritableRaster;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Vector;
+
+/**
+ * Screenshot raster which is kept outside of java heap in a memory-mapped temporary file.
+ * The image is split into horizontal strips so that only the strips that are read or written
+ * are loaded into memory by operating system.
+ * Used for very tall screenshots which would take hundreds of megabytes as a {@link BufferedImage}
+ * @author ishubin
+ *
+ */
+public class TiledScreenshot implements RenderedImage {
+    
+    public static final int STRIP_HEIGHT = 256;
+
+    private final int width;
+    private final int height;
+    private final boolean withAlpha;
+    private final int bytesPerPixel;
+    private final ColorModel colorModel;
+    private final MappedByteBuffer[] strips;
+
+    public TiledScreenshot(int width, int height, boolean withAlpha) throws IOException {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Screenshot size should be positive: " + width + "x" + height);
+        }
+        this.width = width;
+        this.height = height;
+        this.withAlpha = withAlpha;
+        this.bytesPerPixel = withAlpha ? 4 : 3;
+        this.colorModel = createImage(1, 1, withAlpha).getColorModel();
+        this.strips = new MappedByteBuffer[(height + STRIP_HEIGHT - 1) / STRIP_HEIGHT];
+        
+        File file = File.createTempFile("screenshot", ".tiles");
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        try {
+            FileChannel channel = randomAccessFile.getChannel();
+            long stripSize = (long) width * STRIP_HEIGHT * bytesPerPixel;
+            for (int i = 0; i < strips.length; i++) {
+                int rows = Math.min(STRIP_HEIGHT, height - i * STRIP_HEIGHT);
+                strips[i] = channel.map(FileChannel.MapMode.READ_WRITE, i * stripSize, (long) rows * width * bytesPerPixel);
+            }
+        }
+        finally {
+            randomAccessFile.close();
+            // Mapped strips stay valid after the file is removed, 
+            // so the disk space is released together with the screenshot
+            if (!file.delete()) {
+                file.deleteOnExit();
+            }
+        }
+    }
+    
+    /**
+     * Copies the given image into this screenshot starting from the specified row.
+     * The parts of image which do not fit into screenshot are skipped
+     */
+    public void writeImage(BufferedImage image, int top) {
+        BufferedImage source = convert(image, withAlpha);
+        int rowWidth = Math.min(width, source.getWidth());
+        byte[] row = new byte[rowWidth * bytesPerPixel];
+        
+        WritableRaster raster = source.getRaster();
+        for (int y = Math.max(0, -top); y < source.getHeight() && top + y < height; y++) {
+            raster.getDataElements(0, y, rowWidth, 1, row);
+            rowBuffer(top + y, 0).put(row);
+        }
+    }
+    
+    /**
+     * Reads only the specified area of screenshot
+     * @return a new image with red, green, blue and alpha (in case the screenshot has alpha channel) bytes of each pixel
+     */
+    public BufferedImage getRegion(Rect area) {
+        if (area.getLeft() < 0 || area.getTop() < 0 || area.getWidth() <= 0 || area.getHeight() <= 0
+                || area.getLeft() + area.getWidth() > width || area.getTop() + area.getHeight() > height) {
+            throw new IllegalArgumentException("Area " + area + " is outside of screenshot " + width + "x" + height);
+        }
+        
+        BufferedImage region = createImage(area.getWidth(), area.getHeight(), withAlpha);
+        WritableRaster raster = region.getRaster();
+        byte[] row = new byte[area.getWidth() * bytesPerPixel];
+        for (int y = 0; y < area.getHeight(); y++) {
+            rowBuffer(area.getTop() + y, area.getLeft()).get(row);
+            raster.setDataElements(0, y, area.getWidth(), 1, row);
+        }
+        return region;
+    }
+
+    /**
+     * Reads a single pixel without copying any region of screenshot
+     * @return red, green and blue samples of the pixel packed in the same way as in {@link BufferedImage#getRGB(int, int)}
+     */
+    public int getRGB(int x, int y) {
+        if (x < 0 || y < 0 || x >= width || y >= height) {
+            throw new IllegalArgumentException("Pixel " + x + "," + y + " is outside of screenshot " + width + "x" + height);
+        }
+        ByteBuffer pixel = rowBuffer(y, x);
+        return (pixel.get() & 0xff) << 16 | (pixel.get() & 0xff) << 8 | (pixel.get() & 0xff);
+    }
+
+    private ByteBuffer rowBuffer(int y, int x) {
+        ByteBuffer buffer = strips[y / STRIP_HEIGHT].duplicate();
+        buffer.position(((y % STRIP_HEIGHT) * width + x) * bytesPerPixel);
+        return buffer;
+    }
+
+    /**
+     * Creates an image which keeps red, green, blue and optional alpha samples of each pixel as consecutive bytes
+     * in this order. This is the layout in which screenshots are stored and in which color scheme validation reads them
+     */
+    static BufferedImage createImage(int width, int height, boolean withAlpha) {
+        ComponentColorModel colorModel = new ComponentColorModel(ColorSpace.getInstance(ColorSpace.CS_sRGB), withAlpha, false,
+                withAlpha ? Transparency.TRANSLUCENT : Transparency.OPAQUE, DataBuffer.TYPE_BYTE);
+        return new BufferedImage(colorModel, colorModel.createCompatibleWritableRaster(width, height), false, null);
+    }
+
+    /**
+     * Converts image to the layout of {@link #createImage(int, int, boolean)} unless it already has it
+     */
+    static BufferedImage convert(BufferedImage image, boolean withAlpha) {
+        if (hasRGBByteLayout(image, withAlpha)) {
+            return image;
+        }
+        BufferedImage convertedImage = createImage(image.getWidth(), image.getHeight(), withAlpha);
+        Graphics2D graphics = convertedImage.createGraphics();
+        graphics.drawImage(image, 0, 0, null);
+        graphics.dispose();
+        return convertedImage;
+    }
+
+    private static boolean hasRGBByteLayout(BufferedImage image, boolean withAlpha) {
+        if (!(image.getSampleModel() instanceof PixelInterleavedSampleModel)
+                || image.getSampleModel().getDataType() != DataBuffer.TYPE_BYTE
+                || image.getColorModel().getColorSpace().getType() != ColorSpace.TYPE_RGB
+                || image.getColorModel().hasAlpha() != withAlpha) {
+            return false;
+        }
+        
+        int[] bandOffsets = ((PixelInterleavedSampleModel) image.getSampleModel()).getBandOffsets();
+        if (bandOffsets.length != (withAlpha ? 4 : 3)) {
+            return false;
+        }
+        for (int band = 0; band < bandOffsets.length; band++) {
+            if (bandOffsets[band] != band) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public boolean hasAlpha() {
+        return colorModel.hasAlpha();
+    }
+
+    @Override
+    public Vector<RenderedImage> getSources() {
+        return null;
+    }
+
+    @Override
+    public Object getProperty(String name) {
+        return Image.UndefinedProperty;
+    }
+
+    @Override
+    public String[] getPropertyNames() {
+        return null;
+    }
+
+    @Override
+    public ColorModel getColorModel() {
+        return colorModel;
+    }
+
+    @Override
+    public SampleModel getSampleModel() {
+        return colorModel.createCompatibleSampleModel(width, STRIP_HEIGHT);
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public int getMinX() {
+        return 0;
+    }
+
+    @Override
+    public int getMinY() {
+        return 0;
+    }
+
+    @Override
+    public int getNumXTiles() {
+        return 1;
+    }
+
+    @Override
+    public int getNumYTiles() {
+        return strips.length;
+    }
+
+    @Override
+    public int getMinTileX() {
+        return 0;
+    }
+
+    @Override
+    public int getMinTileY() {
+        return 0;
+    }
+
+    @Override
+    public int getTileWidth() {
+        return width;
+    }
+
+    @Override
+    public int getTileHeight() {
+        return STRIP_HEIGHT;
+    }
+
+    @Override
+    public int getTileGridXOffset() {
+        return 0;
+    }
+
+    @Override
+    public int getTileGridYOffset() {
+        return 0;
+    }
+
+    @Override
+    public Raster getTile(int tileX, int tileY) {
+        int top = tileY * STRIP_HEIGHT;
+        return getData(new Rectangle(0, top, width, Math.min(STRIP_HEIGHT, height - top)));
+    }
+
+    @Override
+    public Raster getData() {
+        return getData(new Rectangle(0, 0, width, height));
+    }
+
+    @Override
+    public Raster getData(Rectangle rectangle) {
+        Rectangle bounds = rectangle.intersection(new Rectangle(0, 0, width, height));
+        BufferedImage region = getRegion(new Rect(bounds.x, bounds.y, bounds.width, bounds.height));
+        return region.getRaster().createTranslatedChild(bounds.x, bounds.y);
+    }
+
+    @Override
+    public WritableRaster copyData(WritableRaster raster) {
+        if (raster == null) {
+            raster = colorModel.createCompatibleWritableRaster(width, height);
+        }
+        raster.setRect(getData(raster.getBounds()));
+        return raster;
+    }
+
+}
@@ -26,14 +26,25 @@ import org.openqa.selenium.WebDriver;
 public class ScreenElement implements PageElement {
 
     private WebDriver driver;
+    private Rect cachedArea;
 
     public ScreenElement(WebDriver driver) {
         this.driver = driver;
     }
 
-    @SuppressWarnings("unchecked")
+    /**
+     * The area is measured only once as the page state does not change while it is being validated
+     */
     @Override
     public Rect getArea() {
+        if (cachedArea == null) {
+            cachedArea = fetchArea();
+        }
+        return cachedArea;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Rect fetchArea() {
         List<Long> size = (List<Long>)((JavascriptExecutor)driver).executeScript("return [Math.max(" +
                     "document.body.scrollWidth, document.documentElement.scrollWidth," + 
                     "document.body.offsetWidth, document.documentElement.offsetWidth," +
@@ -16,42 +16,113 @@
 package net.mindengine.galen.page.selenium;
 
 import java.awt.image.BufferedImage;
-import java.io.File;
+import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 
+import net.mindengine.galen.browser.SeleniumBrowser;
 import net.mindengine.galen.page.AbsentPageElement;
 import net.mindengine.galen.page.Page;
 import net.mindengine.galen.page.PageElement;
+import net.mindengine.galen.page.PageScreenshot;
+import net.mindengine.galen.page.Rect;
+import net.mindengine.galen.page.ScreenshotProvider;
 import net.mindengine.galen.specs.page.Locator;
-import net.mindengine.rainbow4j.Rainbow4J;
 
 import org.openqa.selenium.By;
+import org.openqa.selenium.JavascriptExecutor;
 import org.openqa.selenium.NoSuchElementException;
 import org.openqa.selenium.OutputType;
 import org.openqa.selenium.TakesScreenshot;
 import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
 import org.openqa.selenium.WebElement;
 
-public class SeleniumPage implements Page {
+public class SeleniumPage implements Page, ScreenshotProvider {
+
+    /*
+     * Finds all elements for locator type and value inside of root element
+     * using querySelectorAll and document.evaluate so that it never waits for absent elements
+     */
+    private static final String FIND_ALL_FUNCTION = "function findAll(root, type, value) {" +
+                "if (type == 'css') { return root.querySelectorAll(value); }" +
+                "if (type == 'id') {" +
+                    "if (window.CSS && CSS.escape) { return root.querySelectorAll('#' + CSS.escape(value)); }" +
+                    "var all = root.getElementsByTagName('*'), found = [];" +
+                    "for (var i = 0; i < all.length; i++) { if (all[i].id == value) { found.push(all[i]); } }" +
+                    "return found;" +
+                "}" +
+                "var snapshot = document.evaluate(value, root, null, 7, null), nodes = [];" +
+                "for (var i = 0; i < snapshot.snapshotLength; i++) { nodes.push(snapshot.snapshotItem(i)); }" +
+                "return nodes;" +
+            "}";
+    
+    /*
+     * Takes locator type, value and optional root element and returns the list of all found elements
+     */
+    private static final String FIND_ELEMENTS_SCRIPT = FIND_ALL_FUNCTION +
+            "var found = findAll(arguments[2] || document, arguments[0], arguments[1]), result = [];" +
+            "for (var i = 0; i < found.length; i++) { result.push(found[i]); }" +
+            "return result;";
+    
+    /*
+     * Takes a list of locators as [type, value, index] and returns for each of them
+     * either null (if element is absent) or [element, left, top, width, height, visible, text]
+     */
+    private static final String PREFETCH_SCRIPT = FIND_ALL_FUNCTION +
+            "var locators = arguments[0], root = arguments[1] || document, result = [];" +
+            "function hasSize(e) { var r = e.getBoundingClientRect(); return r.width > 0 && r.height > 0; }" +
+            "function isVisible(e) {" +
+                "if (e.tagName.toLowerCase() == 'input' && e.type == 'hidden') { return false; }" +
+                "for (var n = e; n && n.nodeType == 1; n = n.parentNode) {" +
+                    "var style = window.getComputedStyle(n, null);" +
+                    "if (style.display == 'none' || style.opacity == '0') { return false; }" +
+                "}" +
+                "var visibility = window.getComputedStyle(e, null).visibility;" +
+                "if (visibility == 'hidden' || visibility == 'collapse') { return false; }" +
+                "if (hasSize(e)) { return true; }" +
+                "var children = e.getElementsByTagName('*');" +
+                "for (var i = 0; i < children.length; i++) { if (hasSize(children[i])) { return true; } }" +
+                "return false;" +
+            "}" +
+            "function describe(e) {" +
+                "var r = e.getBoundingClientRect(), text;" +
+                "if (e.tagName.toLowerCase() == 'input') { text = e.value || ''; }" +
+                "else { text = (e.innerText !== undefined ? e.innerText : e.textContent) || ''; text = text.replace(/^\\s+|\\s+$/g, ''); }" +
+                "return [e, Math.round(r.left + window.pageXOffset), Math.round(r.top + window.pageYOffset), Math.round(r.width), Math.round(r.height), isVisible(e), text];" +
+            "}" +
+            "for (var k = 0; k < locators.length; k++) {" +
+                "var elements = findAll(root, locators[k][0], locators[k][1]), index = locators[k][2] > 0 ? locators[k][2] - 1 : 0;" +
+                "result.push(index < elements.length ? describe(elements[index]) : null);" +
+            "}" +
+            "return result;";
 
     private WebDriver driver;
     
-    private Map<String, List<PageElement>> cachedElementsList = new HashMap<String, List<PageElement>>();
+    private Map<String, List<WebElement>> cachedElementsList = new HashMap<String, List<WebElement>>();
     private Map<String, PageElement> cachedPageElements = new HashMap<String, PageElement>();
     
     private WebElement objectContext;
     private Locator objectContextLocator;
 
-    private BufferedImage cachedScreenshotImage;
+    private SeleniumBrowser browser;
+    private PageScreenshot screenshot;
+    
+    private ScreenElement screenElement;
+    private ViewportElement viewportElement;
+    private PageElement parentElement;
     
 
     public SeleniumPage(WebDriver driver) {
         this.driver = driver;
     }
     
+    public SeleniumPage(WebDriver driver, SeleniumBrowser browser) {
+        this.driver = driver;
+        this.browser = browser;
+    }
+    
     public SeleniumPage(WebDriver driver, Locator objectContextLocator) {
         this.driver = driver;
         this.objectContextLocator = objectContextLocator;
@@ -61,23 +132,19 @@ public class SeleniumPage implements Page {
     
     private void setObjectContext(Locator objectContextLocator) {
         if (objectContextLocator != null) {
-            By by = by(objectContextLocator);
-            if (by == null) {
+            List<WebElement> elements = findElements(objectContextLocator, null);
+            if (elements == null) {
                 throw new RuntimeException("Cannot convert locator: " + objectContextLocator.getLocatorType() + " " + objectContextLocator.getLocatorValue());
             }
             
-            int index = objectContextLocator.getIndex();
-            if (index > 1) {
-                index = index - 1;
-                List<WebElement> elements = driver.findElements(by);
-                if (index >= elements.size()) {
+            int index = Math.max(objectContextLocator.getIndex() - 1, 0);
+            if (index >= elements.size()) {
+                if (index > 0) {
                     throw new RuntimeException("Incorrect locator for object context. Index out of range");
                 }
-                objectContext = elements.get(index);
-            }
-            else {
-                objectContext = driver.findElement(by);
+                throw new NoSuchElementException("Cannot find object context: " + objectContextLocator.prettyString());
             }
+            objectContext = elements.get(index);
         }
     }
 
@@ -89,6 +156,11 @@ public class SeleniumPage implements Page {
     
     @Override
     public PageElement getObject(String objectName, Locator objectLocator) {
+        PageElement prefetchedElement = cachedPageElements.get(objectName);
+        if (prefetchedElement != null) {
+            return prefetchedElement;
+        }
+        
         int index = objectLocator.getIndex() - 1;
         
         if (index >= 0) {
@@ -100,50 +172,164 @@ public class SeleniumPage implements Page {
     }
 
     private PageElement getWebPageElement(String objectName, Locator objectLocator, int index) {
-        List<PageElement> pageElements = cachedElementsList.get(objectName);
+        List<WebElement> webElements = findAllElements(objectLocator);
+        if (webElements == null) {
+            return null;
+        }
+        
+        PageElement pageElement;
+        if (index < webElements.size()) {
+            pageElement = new WebPageElement(objectName, webElements.get(index), indexedLocator(objectLocator));
+        }
+        else {
+            pageElement = new AbsentPageElement();
+        }
+        cachedPageElements.put(objectName, pageElement);
+        return pageElement;
+    }
+
+    /**
+     * Finds all elements for the given locator ignoring its index.
+     * The elements are cached per locator so that all objects of a multi-object
+     * could be taken from a single findElements call
+     * @param locator
+     * @return list of found elements or null in case of unknown locator type
+     */
+    private List<WebElement> findAllElements(Locator locator) {
+        String key = locator.prettyString();
+        List<WebElement> webElements = cachedElementsList.get(key);
         
-        if (pageElements == null) {
-            By by = by(objectLocator);
-            if (by == null) {
+        if (webElements == null) {
+            webElements = findElements(locator, objectContext);
+            if (webElements == null) {
                 return null;
             }
-            
-            List<WebElement> webElements = driverFindElements(by);
-            
-            pageElements = new LinkedList<PageElement>();
-            int i = 1;
-            for (WebElement webElement : webElements) {
-                pageElements.add(new WebPageElement(objectName, webElement, new Locator(objectLocator.getLocatorType(), objectLocator.getLocatorValue(), i)));
-                i++;
+            cachedElementsList.put(key, webElements);
+        }
+        return webElements;
+    }
+
+    /**
+     * Resolves locator in browser with querySelectorAll or document.evaluate.
+     * Unlike findElements it returns immediately for absent elements even if implicit wait is configured for driver.
+     * Falls back to findElements in case the driver is not able to execute javascript
+     * @param locator
+     * @param root - element in which the search should be performed or null for whole page
+     * @return list of found elements or null in case of unknown locator type
+     */
+    @SuppressWarnings("unchecked")
+    private List<WebElement> findElements(Locator locator, WebElement root) {
+        By by = by(locator);
+        if (by == null) {
+            return null;
+        }
+        
+        if (driver instanceof JavascriptExecutor) {
+            try {
+                List<Object> found;
+                if (root != null) {
+                    found = (List<Object>) ((JavascriptExecutor)driver).executeScript(FIND_ELEMENTS_SCRIPT, locator.getLocatorType(), locator.getLocatorValue(), root);
+                }
+                else {
+                    found = (List<Object>) ((JavascriptExecutor)driver).executeScript(FIND_ELEMENTS_SCRIPT, locator.getLocatorType(), locator.getLocatorValue());
+                }
+                
+                if (found != null) {
+                    List<WebElement> webElements = new ArrayList<WebElement>(found.size());
+                    for (Object element : found) {
+                        webElements.add((WebElement) element);
+                    }
+                    return webElements;
+                }
+            }
+            catch (WebDriverException e) {
+                // falling back to WebDriver search
             }
         }
-        if (index < pageElements.size()) {
-             return pageElements.get(index);
+        
+        if (root != null) {
+            return root.findElements(by);
         }
         else {
-            return new AbsentPageElement();
+            return driver.findElements(by);
         }
-        
     }
 
-    private List<WebElement> driverFindElements(By by) {
-        if (objectContext == null) {
-            return driver.findElements(by);
+    /**
+     * Fetches area, visibility and text of all specified objects with a single javascript call
+     * so that validation does not need to do any further requests to WebDriver for these objects.
+     * Objects which were already fetched or that use unknown locator types are skipped.
+     * In case the javascript call fails the objects will be fetched lazily one by one as usual.
+     * @param objects - map of object names and their locators
+     */
+    @SuppressWarnings("unchecked")
+    public void prefetchObjects(Map<String, Locator> objects) {
+        List<String> objectNames = new ArrayList<String>();
+        List<Locator> locators = new ArrayList<Locator>();
+        List<List<Object>> scriptLocators = new ArrayList<List<Object>>();
+        
+        for (Map.Entry<String, Locator> object : objects.entrySet()) {
+            Locator locator = object.getValue();
+            if (!cachedPageElements.containsKey(object.getKey()) && by(locator) != null) {
+                objectNames.add(object.getKey());
+                locators.add(locator);
+                
+                List<Object> scriptLocator = new ArrayList<Object>(3);
+                scriptLocator.add(locator.getLocatorType());
+                scriptLocator.add(locator.getLocatorValue());
+                scriptLocator.add(locator.getIndex());
+                scriptLocators.add(scriptLocator);
+            }
         }
-        else {
-            return objectContext.findElements(by);
+        
+        if (objectNames.isEmpty()) {
+            return;
+        }
+        
+        List<Object> results;
+        try {
+            if (objectContext != null) {
+                results = (List<Object>) ((JavascriptExecutor)driver).executeScript(PREFETCH_SCRIPT, scriptLocators, objectContext);
+            }
+            else {
+                results = (List<Object>) ((JavascriptExecutor)driver).executeScript(PREFETCH_SCRIPT, scriptLocators);
+            }
+        }
+        catch (WebDriverException e) {
+            return;
+        }
+        
+        if (results == null || results.size() != objectNames.size()) {
+            return;
+        }
+        
+        for (int i = 0; i < results.size(); i++) {
+            cachedPageElements.put(objectNames.get(i), prefetchedElement(objectNames.get(i), locators.get(i), (List<Object>) results.get(i)));
         }
     }
 
-    private WebElement driverFindElement(By by) {
-        if (objectContext == null) {
-            return driver.findElement(by);
+    private PageElement prefetchedElement(String objectName, Locator locator, List<Object> data) {
+        if (data == null) {
+            return new AbsentPageElement();
         }
         else {
-            return objectContext.findElement(by);
+            Rect area = new Rect(intValue(data.get(1)), intValue(data.get(2)), intValue(data.get(3)), intValue(data.get(4)));
+            Locator elementLocator = locator.getIndex() > 0 ? indexedLocator(locator) : locator;
+            return new WebPageElement(objectName, (WebElement) data.get(0), elementLocator)
+                .withPrefetchedData(area, Boolean.TRUE.equals(data.get(5)), (String) data.get(6));
         }
     }
-    
+
+    /**
+     * Elements of multi-objects are not corrected, so their locators are taken without corrections
+     */
+    private Locator indexedLocator(Locator locator) {
+        return new Locator(locator.getLocatorType(), locator.getLocatorValue(), locator.getIndex());
+    }
+
+    private int intValue(Object number) {
+        return ((Number) number).intValue();
+    }
 
     private PageElement getWebPageElement(String objectName, Locator objectLocator) {
         PageElement pageElement = cachedPageElements.get(objectName);
@@ -160,20 +346,18 @@ public class SeleniumPage implements Page {
     }
 
     private PageElement locatorToElement(String objectName, Locator objectLocator) {
-        PageElement pageElement;
-        By by = by(objectLocator);
-        if (by == null) {
+        List<WebElement> webElements = findElements(objectLocator, objectContext);
+        if (webElements == null) {
             return null;
         }
         
-        try {
-            WebElement webElement = driverFindElement(by);
-            pageElement = new WebPageElement(objectName, webElement, objectLocator);
+        int index = Math.max(objectLocator.getIndex() - 1, 0);
+        if (index < webElements.size()) {
+            return new WebPageElement(objectName, webElements.get(index), objectLocator);
         }
-        catch (NoSuchElementException e) {
-            pageElement = new AbsentPageElement();
+        else {
+            return new AbsentPageElement();
         }
-        return pageElement;
     }
 
     private By by(Locator locator) {
@@ -190,47 +374,87 @@ public class SeleniumPage implements Page {
     }
 
 
+    /**
+     * Special objects are created once per page so their measurements
+     * are shared by all specs and object context pages
+     */
     @Override
     public PageElement getSpecialObject(String objectName) {
         if ("screen".equals(objectName)) {
-            return new ScreenElement(driver);
+            return getScreenElement();
         }
         else if ("viewport".equals(objectName)) {
-            return new ViewportElement(driver);
+            return getViewportElement();
         }
         else if ("parent".equals(objectName)) {
             if (objectContext != null) {
-                return new WebPageElement("parent", objectContext, objectContextLocator);
+                if (parentElement == null) {
+                    parentElement = new WebPageElement("parent", objectContext, objectContextLocator);
+                }
+                return parentElement;
             }
             else throw new RuntimeException("There is no object context defined on page");
         }
         else return null;
     }
 
+    private ScreenElement getScreenElement() {
+        if (screenElement == null) {
+            screenElement = new ScreenElement(driver);
+        }
+        return screenElement;
+    }
+
+    private ViewportElement getViewportElement() {
+        if (viewportElement == null) {
+            viewportElement = new ViewportElement(driver);
+        }
+        return viewportElement;
+    }
+
 
     @Override
     public int getObjectCount(Locator locator) {
-        return driverFindElements(by(locator)).size();
+        List<WebElement> webElements = findAllElements(locator);
+        if (webElements == null) {
+            throw new RuntimeException("Cannot convert locator: " + locator.getLocatorType() + " " + locator.getLocatorValue());
+        }
+        return webElements.size();
     }
 
     @Override
     public Page createObjectContextPage(Locator objectContextLocator) {
-        return new SeleniumPage(this.driver, objectContextLocator);
+        SeleniumPage objectContextPage = new SeleniumPage(this.driver, objectContextLocator);
+        objectContextPage.browser = browser;
+        objectContextPage.screenElement = getScreenElement();
+        objectContextPage.viewportElement = getViewportElement();
+        objectContextPage.screenshot = screenshot;
+        return objectContextPage;
     }
 
     @Override
     public BufferedImage getScreenshotImage() {
-        if (this.cachedScreenshotImage == null) {
-            File file = ((TakesScreenshot)driver).getScreenshotAs(OutputType.FILE);
-            try {
-                cachedScreenshotImage = Rainbow4J.loadImage(file.getAbsolutePath());
-            } catch (Exception e) {
-                throw new RuntimeException("Couldn't take screenshot for page", e);
+        try {
+            return getScreenshot().getImage();
+        } catch (Exception e) {
+            throw new RuntimeException("Couldn't take screenshot for page", e);
+        }
+    }
+
+    /**
+     * Takes the screenshot from browser (if page was created by it) so it could be shared with reports
+     */
+    @Override
+    public PageScreenshot getScreenshot() {
+        if (screenshot == null) {
+            if (browser != null) {
+                screenshot = browser.getScreenshot();
+            }
+            else {
+                screenshot = new PageScreenshot(((TakesScreenshot)driver).getScreenshotAs(OutputType.BYTES));
             }
         }
-        return this.cachedScreenshotImage;
+        return screenshot;
     }
 
-    
-    
 }
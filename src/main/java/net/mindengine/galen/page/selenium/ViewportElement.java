@@ -26,14 +26,22 @@ import org.openqa.selenium.WebDriver;
 public class ViewportElement implements PageElement {
 
     private WebDriver driver;
+    private Rect cachedArea;
 
     public ViewportElement(WebDriver driver) {
         this.driver = driver;
     }
 
-    @SuppressWarnings("unchecked")
     @Override
     public Rect getArea() {
+        if (cachedArea == null) {
+            cachedArea = fetchArea();
+        }
+        return cachedArea;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Rect fetchArea() {
         List<Long> size = (List<Long>)((JavascriptExecutor)driver).executeScript("return [window.innerWidth" +
                     "|| document.documentElement.clientWidth" + 
                     "|| document.body.clientWidth," +
@@ -17,7 +17,6 @@ package net.mindengine.galen.page.selenium;
 
 import net.mindengine.galen.page.PageElement;
 import net.mindengine.galen.page.Rect;
-import net.mindengine.galen.specs.page.CorrectionsRect;
 import net.mindengine.galen.specs.page.Locator;
 
 import org.openqa.selenium.Dimension;
@@ -44,20 +43,31 @@ public class WebPageElement implements PageElement {
         if (cachedArea == null) {   
             Point location = getWebElement().getLocation();
             Dimension size = getWebElement().getSize();
-            cachedArea = new Rect(location.getX(), location.getY(), size.getWidth(), size.getHeight());
-            
-            if (getLocator() != null && getLocator().getCorrections() != null) {
-                cachedArea = correctedRect(cachedArea, getLocator().getCorrections());
-            }
+            cachedArea = withCorrections(new Rect(location.getX(), location.getY(), size.getWidth(), size.getHeight()));
         }
         return cachedArea;
     }
 
-    private Rect correctedRect(Rect rect, CorrectionsRect corrections) {
-        return new Rect(corrections.getLeft().correct(rect.getLeft()),
-                corrections.getTop().correct(rect.getTop()),
-                corrections.getWidth().correct(rect.getWidth()),
-                corrections.getHeight().correct(rect.getHeight()));
+    /**
+     * Populates element with the data that was already fetched from browser
+     * so that it will not make any further calls to WebDriver for it
+     * @param area - area of element without corrections
+     * @param visible
+     * @param text
+     * @return
+     */
+    public WebPageElement withPrefetchedData(Rect area, boolean visible, String text) {
+        this.cachedArea = withCorrections(area);
+        this.cachedVisibility = visible;
+        this.cachedText = text;
+        return this;
+    }
+
+    private Rect withCorrections(Rect rect) {
+        if (getLocator() != null && getLocator().getCorrections() != null) {
+            return getLocator().getCorrections().correct(rect);
+        }
+        else return rect;
     }
 
     @Override
@@ -119,8 +129,14 @@ public class WebPageElement implements PageElement {
         this.webElement = webElement;
     }
 
+    private String cachedText = null;
+    
     @Override
     public String getText() {
+        if (cachedText != null) {
+            return cachedText;
+        }
+        
         WebElement webElement = getWebElement();
         if ("input".equals(webElement.getTagName().toLowerCase())) {
             String value = webElement.getAttribute("value");
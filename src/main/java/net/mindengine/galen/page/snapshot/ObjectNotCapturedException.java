@@ -0,0 +1,32 @@
+/*******************************************************************************
+* Copyright 2014 Ivan Shubin http://mindengine.net
+* 
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+* 
+*   http://www.apache.org/licenses/LICENSE-2.0
+* 
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+******************************************************************************/
+package net.mindengine.galen.page.snapshot;
+
+/**
+ * Thrown when a stored page snapshot is asked for an object which was not captured,
+ * e.g. because it was added to page spec after the snapshot was stored
+ * @author ishubin
+ *
+ */
+public class ObjectNotCapturedException extends RuntimeException {
+
+    private static final long serialVersionUID = 2985732384956721130L;
+
+    public ObjectNotCapturedException(String message) {
+        super(message);
+    }
+
+}
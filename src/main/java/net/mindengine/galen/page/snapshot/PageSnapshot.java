@@ -0,0 +1,382 @@
+/*******************************************************************************
+* Copyright 2014 Ivan Shubin http://mindengine.net
+* 
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+* 
+*   http://www.apache.org/licenses/LICENSE-2.0
+* 
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+******************************************************************************/
+package net.mindengine.galen.page.snapshot;
+
+import static java.lang.String.format;
+
+import java.awt.image.BufferedImage;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.mindengine.galen.page.AbsentPageElement;
+import net.mindengine.galen.page.Page;
+import net.mindengine.galen.page.PageElement;
+import net.mindengine.galen.page.PageScreenshot;
+import net.mindengine.galen.page.Rect;
+import net.mindengine.galen.page.ScreenshotProvider;
+import net.mindengine.galen.page.selenium.SeleniumPage;
+import net.mindengine.galen.specs.Spec;
+import net.mindengine.galen.specs.SpecColorScheme;
+import net.mindengine.galen.specs.page.ConditionalBlock;
+import net.mindengine.galen.specs.page.ConditionalBlockStatement;
+import net.mindengine.galen.specs.page.Locator;
+import net.mindengine.galen.specs.page.ObjectSpecs;
+import net.mindengine.galen.specs.page.PageSection;
+import net.mindengine.galen.specs.reader.page.PageSpec;
+
+/**
+ * Immutable copy of all page objects that are needed for validation of page specs.
+ * Objects are stored by their locators without corrections so the snapshot could be
+ * checked with any specs using the same locators.
+ * Once captured it doesn't make any calls to the original page (unless an object
+ * which was not captured is requested) and therefore is safe to be used from different threads.
+ * Stored snapshots don't have the original page and fail with {@link ObjectNotCapturedException}
+ * for objects which were not captured
+ * @author ishubin
+ *
+ */
+public class PageSnapshot implements Page, ScreenshotProvider {
+
+    private static final String[] SPECIAL_OBJECTS = {"screen", "viewport"};
+
+    private final Page originPage;
+    
+    private final Map<String, PageElement> elements = new LinkedHashMap<String, PageElement>();
+    private final Map<String, PageElement> specialElements = new HashMap<String, PageElement>();
+    private final Map<String, Integer> objectCounts = new LinkedHashMap<String, Integer>();
+    
+    private PageScreenshot screenshot;
+    
+    private PageSnapshot(Page originPage) {
+        this.originPage = originPage;
+    }
+    
+    /**
+     * Captures all objects of the given page specs including the multi-objects.
+     * The multi-objects in page specs get updated as well 
+     * @param page - the page from which the snapshot should be taken
+     * @param pageSpecs
+     * @return
+     */
+    public static PageSnapshot capture(Page page, List<PageSpec> pageSpecs) {
+        return capture(page, pageSpecs, false);
+    }
+    
+    /**
+     * Captures all objects of the given page specs including the multi-objects.
+     * The multi-objects in page specs get updated as well 
+     * @param page - the page from which the snapshot should be taken
+     * @param pageSpecs
+     * @param withScreenshot - if true the screenshot is captured even if none of the specs needs it 
+     * @return
+     */
+    public static PageSnapshot capture(Page page, List<PageSpec> pageSpecs, boolean withScreenshot) {
+        PageSnapshot snapshot = new PageSnapshot(page);
+        
+        boolean needsScreenshot = withScreenshot;
+        for (PageSpec pageSpec : pageSpecs) {
+            snapshot.captureObjectCounts(pageSpec);
+            pageSpec.updateMultiObjects(snapshot);
+            snapshot.captureObjects(pageSpec.getObjects());
+            
+            needsScreenshot = needsScreenshot || needsScreenshot(pageSpec);
+        }
+        
+        for (String specialObjectName : SPECIAL_OBJECTS) {
+            PageElement element = page.getSpecialObject(specialObjectName);
+            if (element != null) {
+                snapshot.specialElements.put(specialObjectName, freeze(element));
+            }
+        }
+        
+        if (needsScreenshot) {
+            snapshot.screenshot = PageScreenshot.fromPage(page);
+        }
+        return snapshot;
+    }
+    
+    private void captureObjectCounts(PageSpec pageSpec) {
+        for (Locator locator : pageSpec.getMultiObjects().values()) {
+            String key = locator.prettyString();
+            if (!objectCounts.containsKey(key)) {
+                objectCounts.put(key, originPage.getObjectCount(locator));
+            }
+        }
+    }
+
+    private void captureObjects(Map<String, Locator> objects) {
+        Map<String, Locator> notCapturedObjects = new HashMap<String, Locator>();
+        for (Map.Entry<String, Locator> object : objects.entrySet()) {
+            if (!elements.containsKey(locatorKey(object.getValue()))) {
+                notCapturedObjects.put(object.getKey(), withoutCorrections(object.getValue()));
+            }
+        }
+        
+        if (originPage instanceof SeleniumPage) {
+            ((SeleniumPage) originPage).prefetchObjects(notCapturedObjects);
+        }
+        
+        for (Map.Entry<String, Locator> object : notCapturedObjects.entrySet()) {
+            String key = locatorKey(object.getValue());
+            if (!elements.containsKey(key)) {
+                PageElement element = originPage.getObject(object.getKey(), object.getValue());
+                if (element != null) {
+                    elements.put(key, freeze(element));
+                }
+            }
+        }
+    }
+
+    private static Locator withoutCorrections(Locator locator) {
+        return new Locator(locator.getLocatorType(), locator.getLocatorValue(), locator.getIndex());
+    }
+
+    private static String locatorKey(Locator locator) {
+        return locator.getLocatorType() + ": " + locator.getLocatorValue() + " #" + locator.getIndex();
+    }
+
+    private static PageElement freeze(PageElement element) {
+        if (element.isPresent()) {
+            return new SnapshotPageElement(element.getArea(), element.isVisible(), element.getText());
+        }
+        else {
+            return new AbsentPageElement();
+        }
+    }
+
+    private static boolean needsScreenshot(PageSpec pageSpec) {
+        for (PageSection section : pageSpec.getSections()) {
+            if (needsScreenshot(section.getObjects())) {
+                return true;
+            }
+            if (section.getConditionalBlocks() != null) {
+                for (ConditionalBlock block : section.getConditionalBlocks()) {
+                    if (needsScreenshot(block.getBodyObjects()) || needsScreenshot(block.getOtherwiseObjects())) {
+                        return true;
+                    }
+                    for (ConditionalBlockStatement statement : block.getStatements()) {
+                        if (needsScreenshot(statement.getObjects())) {
+                            return true;
+                        }
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean needsScreenshot(List<ObjectSpecs> objects) {
+        if (objects != null) {
+            for (ObjectSpecs object : objects) {
+                for (Spec spec : object.getSpecs()) {
+                    if (spec instanceof SpecColorScheme) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private PageElement findElement(Locator locator) {
+        PageElement element = elements.get(locatorKey(locator));
+        if (element instanceof SnapshotPageElement && locator.getCorrections() != null) {
+            return ((SnapshotPageElement) element).withCorrections(locator.getCorrections());
+        }
+        return element;
+    }
+
+    @Override
+    public PageElement getObject(Locator objectLocator) {
+        return getObject(null, objectLocator);
+    }
+
+    @Override
+    public PageElement getObject(String objectName, Locator objectLocator) {
+        PageElement element = findElement(objectLocator);
+        if (element != null) {
+            return element;
+        }
+        else if (originPage == null) {
+            String name = objectName != null ? objectName : objectLocator.prettyString();
+            throw new ObjectNotCapturedException(format("\"%s\" was not captured in page snapshot", name));
+        }
+        else synchronized (originPage) {
+            if (objectName != null) {
+                return originPage.getObject(objectName, objectLocator);
+            }
+            else {
+                return originPage.getObject(objectLocator);
+            }
+        }
+    }
+
+    @Override
+    public PageElement getSpecialObject(String objectName) {
+        PageElement element = specialElements.get(objectName);
+        if (element != null || originPage == null) {
+            return element;
+        }
+        else synchronized (originPage) {
+            return originPage.getSpecialObject(objectName);
+        }
+    }
+
+    @Override
+    public int getObjectCount(Locator locator) {
+        Integer count = objectCounts.get(locator.prettyString());
+        if (count != null) {
+            return count;
+        }
+        else if (originPage == null) {
+            return 0;
+        }
+        else synchronized (originPage) {
+            return originPage.getObjectCount(locator);
+        }
+    }
+
+    /**
+     * Component specs are checked against the original page
+     * as their objects are not known at the moment of capturing
+     */
+    @Override
+    public Page createObjectContextPage(Locator mainObjectLocator) {
+        if (originPage == null) {
+            return null;
+        }
+        else synchronized (originPage) {
+            return originPage.createObjectContextPage(mainObjectLocator);
+        }
+    }
+
+    @Override
+    public BufferedImage getScreenshotImage() {
+        PageScreenshot pageScreenshot = getScreenshot();
+        if (pageScreenshot != null) {
+            try {
+                return pageScreenshot.getImage();
+            } catch (IOException e) {
+                throw new RuntimeException("Couldn't load screenshot", e);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public synchronized PageScreenshot getScreenshot() {
+        if (screenshot == null && originPage != null) {
+            synchronized (originPage) {
+                screenshot = PageScreenshot.fromPage(originPage);
+            }
+        }
+        return screenshot;
+    }
+
+    public Page getOriginPage() {
+        return originPage;
+    }
+
+    /**
+     * Writes all captured data except the screenshot
+     */
+    void writeTo(DataOutputStream out) throws IOException {
+        out.writeInt(specialElements.size());
+        for (Map.Entry<String, PageElement> element : specialElements.entrySet()) {
+            out.writeUTF(element.getKey());
+            writeElement(out, element.getValue());
+        }
+        
+        out.writeInt(objectCounts.size());
+        for (Map.Entry<String, Integer> count : objectCounts.entrySet()) {
+            out.writeUTF(count.getKey());
+            out.writeInt(count.getValue());
+        }
+        
+        out.writeInt(elements.size());
+        for (Map.Entry<String, PageElement> element : elements.entrySet()) {
+            out.writeUTF(element.getKey());
+            writeElement(out, element.getValue());
+        }
+    }
+
+    static PageSnapshot readFrom(DataInputStream in, File screenshotFile) throws IOException {
+        PageSnapshot snapshot = new PageSnapshot(null);
+        if (screenshotFile != null) {
+            snapshot.screenshot = new PageScreenshot(screenshotFile);
+        }
+        
+        int amount = in.readInt();
+        for (int i = 0; i < amount; i++) {
+            snapshot.specialElements.put(in.readUTF(), readElement(in));
+        }
+        
+        amount = in.readInt();
+        for (int i = 0; i < amount; i++) {
+            snapshot.objectCounts.put(in.readUTF(), in.readInt());
+        }
+        
+        amount = in.readInt();
+        for (int i = 0; i < amount; i++) {
+            snapshot.elements.put(in.readUTF(), readElement(in));
+        }
+        return snapshot;
+    }
+
+    private static void writeElement(DataOutputStream out, PageElement element) throws IOException {
+        out.writeBoolean(element.isPresent());
+        if (element.isPresent()) {
+            Rect area = element.getArea();
+            out.writeInt(area.getLeft());
+            out.writeInt(area.getTop());
+            out.writeInt(area.getWidth());
+            out.writeInt(area.getHeight());
+            out.writeBoolean(element.isVisible());
+            
+            String text = element.getText();
+            out.writeBoolean(text != null);
+            if (text != null) {
+                byte[] bytes = text.getBytes("UTF-8");
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+        }
+    }
+
+    private static PageElement readElement(DataInputStream in) throws IOException {
+        if (in.readBoolean()) {
+            Rect area = new Rect(in.readInt(), in.readInt(), in.readInt(), in.readInt());
+            boolean visible = in.readBoolean();
+            String text = null;
+            if (in.readBoolean()) {
+                byte[] bytes = new byte[in.readInt()];
+                in.readFully(bytes);
+                text = new String(bytes, "UTF-8");
+            }
+            return new SnapshotPageElement(area, visible, text);
+        }
+        else {
+            return new AbsentPageElement();
+        }
+    }
+
+}
@@ -0,0 +1,126 @@
+/*******************************************************************************
+* Copyright 2014 Ivan Shubin http://mindengine.net
+* 
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+* 
+*   http://www.apache.org/licenses/LICENSE-2.0
+* 
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+******************************************************************************/
+package net.mindengine.galen.page.snapshot;
+
+import java.awt.Dimension;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import net.mindengine.galen.browser.SnapshotBrowser;
+import net.mindengine.galen.page.PageScreenshot;
+
+/**
+ * Stores page snapshots on disk in a compact binary format.
+ * The screenshot of the page is stored next to snapshot file as png image
+ * @author ishubin
+ *
+ */
+public class PageSnapshotStorage {
+
+    public static final String SNAPSHOT_EXTENSION = ".snapshot";
+    private static final int MAGIC = 0x47534e50;
+    private static final int VERSION = 1;
+
+    public static File save(File folder, String name, PageSnapshot snapshot, String url, Dimension screenSize) throws IOException {
+        folder.mkdirs();
+        
+        File file = new File(folder, name + SNAPSHOT_EXTENSION);
+        String screenshotName = null;
+        
+        PageScreenshot screenshot = snapshot.getScreenshot();
+        if (screenshot != null) {
+            screenshotName = name + ".png";
+            screenshot.writeTo(new File(folder, screenshotName));
+        }
+        
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            writeString(out, url);
+            out.writeBoolean(screenSize != null);
+            if (screenSize != null) {
+                out.writeInt(screenSize.width);
+                out.writeInt(screenSize.height);
+            }
+            writeString(out, screenshotName);
+            snapshot.writeTo(out);
+        }
+        finally {
+            out.close();
+        }
+        return file;
+    }
+
+    public static SnapshotBrowser load(File file) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        try {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a page snapshot: " + file.getAbsolutePath());
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported page snapshot version " + version + ": " + file.getAbsolutePath());
+            }
+            
+            String url = readString(in);
+            Dimension screenSize = null;
+            if (in.readBoolean()) {
+                screenSize = new Dimension(in.readInt(), in.readInt());
+            }
+            
+            String screenshotName = readString(in);
+            File screenshotFile = null;
+            if (screenshotName != null) {
+                screenshotFile = new File(file.getParentFile(), screenshotName);
+            }
+            
+            PageSnapshot snapshot = PageSnapshot.readFrom(in, screenshotFile);
+            return new SnapshotBrowser(snapshot, url, screenSize, screenshotFile);
+        }
+        finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Converts any text (e.g. page test title or url) to a name which is safe to use for files
+     */
+    public static String convertToFileName(String text) {
+        return text.replaceAll("^[a-zA-Z]+://", "").replaceAll("[^a-zA-Z0-9\\-_\\.]+", "-").replaceAll("^-+|-+$", "");
+    }
+
+    private static void writeString(DataOutputStream out, String text) throws IOException {
+        out.writeBoolean(text != null);
+        if (text != null) {
+            out.writeUTF(text);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        if (in.readBoolean()) {
+            return in.readUTF();
+        }
+        else return null;
+    }
+
+}
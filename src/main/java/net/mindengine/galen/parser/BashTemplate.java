@@ -15,24 +15,39 @@
 ******************************************************************************/
 package net.mindengine.galen.parser;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
-import net.mindengine.galen.specs.reader.StringCharReader;
 import net.mindengine.galen.suite.reader.Context;
 
 import org.mozilla.javascript.BaseFunction;
 import org.mozilla.javascript.ImporterTopLevel;
+import org.mozilla.javascript.Script;
 import org.mozilla.javascript.Scriptable;
 import org.mozilla.javascript.ScriptableObject;
 
 public class BashTemplate {
 
-    private static final int PARSING_TEXT = 0;
-    private static final int PARSING_PARAM = 1;
-
+    private static final int MAX_CACHED_TEMPLATES = 10000;
+    
+    /*
+     * Standard javascript objects are initialized once per thread and are sealed
+     * so that expressions could not modify them
+     */
+    private static final ThreadLocal<ScriptableObject> sharedScopes = new ThreadLocal<ScriptableObject>();
+    
+    private static final Map<String, Script> compiledScripts = new ConcurrentHashMap<String, Script>();
+    
+    /*
+     * Compiled segments of templates by their text. Texts without '$' symbol
+     * are never compiled as they are passed through as they are
+     */
+    private static final Map<String, Segment[]> compiledTemplates = new ConcurrentHashMap<String, Segment[]>();
+    
     private String templateText;
     
-    private int state = PARSING_TEXT;
     private BashTemplateJsFunctions jsFunctions;
     
    
@@ -43,100 +58,172 @@ public class BashTemplate {
     }
 
     public String process(Context context) {
-        StringCharReader reader = new StringCharReader(templateText);
-        
-        StringBuffer buffer = new StringBuffer();
+        if (isLiteral(templateText)) {
+            return templateText;
+        }
         
-        StringBuffer currentExpression = new StringBuffer();
+        Segment[] segments = compile(templateText);
         
-        while(reader.hasMore()) {
-            char symbol = reader.next();
-            if (state ==  PARSING_TEXT) {
-                if (symbol == '$' && reader.currentSymbol() == '{') {
-                    state = PARSING_PARAM;
-                    currentExpression = new StringBuffer();
-                    reader.next();
-                }
-                else if(symbol=='\\' && reader.currentSymbol() == '$') {
-                    buffer.append('$');
-                    reader.next();
-                }
-                else {
-                    buffer.append(symbol);
+        StringBuilder builder = new StringBuilder(templateText.length());
+        for (Segment segment : segments) {
+            if (segment.type == Segment.TEXT) {
+                builder.append(segment.text);
+            }
+            else {
+                Object value = getExpressionValue(segment, context);
+                if (value == null) {
+                    value = "";
                 }
+                builder.append(value.toString());
             }
-            else if (state ==  PARSING_PARAM) {
-                if (symbol == '}') {
-                    String expression = currentExpression.toString().trim();
-                    Object value = getExpressionValue(expression, context);
-                    if (value == null) {
-                        value = "";
+        }
+        return builder.toString();
+    }
+
+    /**
+     * @return true if the text does not contain any expressions or escaped symbols and therefore stays the same after processing
+     */
+    public static boolean isLiteral(String text) {
+        return text.indexOf('$') < 0;
+    }
+
+    /**
+     * @return names of all variables which are used in the template text
+     */
+    public static List<String> findVariables(String templateText) {
+        List<String> variables = new ArrayList<String>();
+        for (Segment segment : compile(templateText)) {
+            if (segment.type == Segment.VARIABLE) {
+                variables.add(segment.text);
+            }
+        }
+        return variables;
+    }
+
+    /**
+     * @return true if the template text contains javascript expressions
+     */
+    public static boolean hasJavascript(String templateText) {
+        for (Segment segment : compile(templateText)) {
+            if (segment.type == Segment.JS_EXPRESSION) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return value of system property which is used for variables that are not defined in context
+     */
+    public static String readSystemVariable(String name) {
+        return System.getProperty(name, "");
+    }
+
+    private static Segment[] compile(String templateText) {
+        Segment[] segments = compiledTemplates.get(templateText);
+        if (segments == null) {
+            segments = parseSegments(templateText);
+            if (compiledTemplates.size() < MAX_CACHED_TEMPLATES) {
+                compiledTemplates.put(templateText, segments);
+            }
+        }
+        return segments;
+    }
+
+    private static Segment[] parseSegments(String templateText) {
+        List<Segment> segments = new ArrayList<Segment>();
+        
+        StringBuilder text = new StringBuilder();
+        StringBuilder currentExpression = null;
+        
+        int length = templateText.length();
+        for (int i = 0; i < length; i++) {
+            char symbol = templateText.charAt(i);
+            
+            if (currentExpression == null) {
+                char nextSymbol = i + 1 < length ? templateText.charAt(i + 1) : 0;
+                
+                if (symbol == '$' && nextSymbol == '{') {
+                    if (text.length() > 0) {
+                        segments.add(Segment.text(text.toString()));
+                        text.setLength(0);
                     }
-                    buffer.append(value.toString());
-                    state = PARSING_TEXT;
+                    currentExpression = new StringBuilder();
+                    i++;
+                }
+                else if (symbol == '\\' && nextSymbol == '$') {
+                    text.append('$');
+                    i++;
                 }
                 else {
-                    currentExpression.append(symbol);
+                    text.append(symbol);
                 }
-                
+            }
+            else if (symbol == '}') {
+                segments.add(Segment.expression(currentExpression.toString().trim()));
+                currentExpression = null;
+            }
+            else {
+                currentExpression.append(symbol);
             }
         }
-        return buffer.toString();
+        
+        // expression that is not closed is skipped
+        if (text.length() > 0) {
+            segments.add(Segment.text(text.toString()));
+        }
+        return segments.toArray(new Segment[segments.size()]);
     }
-
     
-    private Object getExpressionValue(String expression, Context context) {
-        if (expression.matches("[a-zA-Z0-9..._]*")) {
-            Object value = context.getValue(expression);
+    private Object getExpressionValue(Segment segment, Context context) {
+        if (segment.type == Segment.VARIABLE) {
+            Object value = context.getValue(segment.text);
             if (value == null) {
                 //Looking for value in system properties
-                value = System.getProperty(expression, "");
+                value = readSystemVariable(segment.text);
             }
             return value;
         }
         else {
-            return readJsExpression(expression, context);
+            return readJsExpression(segment.text, context);
         }
     }
 
-    @SuppressWarnings("serial")
     private Object readJsExpression(String expression, Context context) {
         org.mozilla.javascript.Context cx = org.mozilla.javascript.Context.enter();
-        ScriptableObject scope = new ImporterTopLevel(cx);
-        
-        for (Map.Entry<String, Object> parameter : context.getParameters().entrySet()) {
-            if (!conflictsWithFunctionNames(parameter.getKey())) {
-                ScriptableObject.putProperty(scope, parameter.getKey(), parameter.getValue());
-            }
-        }
-        
-        if (jsFunctions != null) {
-            scope.defineProperty("count", new BaseFunction() {
-                @Override
-                public Object call(org.mozilla.javascript.Context cx, Scriptable scope, Scriptable thisObj, Object[] args) {
-                    if (args.length == 0 || !(args[0] instanceof String)) {
-                        throw new IllegalArgumentException("Should take string argument");
-                    }
-                    return jsFunctions.count((String)args[0]);
+        try {
+            // expressions are short and are mostly evaluated once per template so compiling them to classes doesn't pay off
+            cx.setOptimizationLevel(-1);
+            
+            Script script = compiledScripts.get(expression);
+            if (script == null) {
+                script = cx.compileString(expression, "<cmd>", 1, null);
+                if (compiledScripts.size() < MAX_CACHED_TEMPLATES) {
+                    compiledScripts.put(expression, script);
                 }
-            }, ScriptableObject.DONTENUM);
-        }
-        
-        Object returnedObject = cx.evaluateString(scope, expression, "<cmd>", 1, null);
-        if (returnedObject instanceof Double) {
-            return ((Double)returnedObject).intValue();
+            }
+            
+            Object returnedObject = script.exec(cx, new ParametersScope(sharedScope(cx), context, jsFunctions));
+            if (returnedObject instanceof Double) {
+                return ((Double)returnedObject).intValue();
+            }
+            else if (returnedObject instanceof Float) {
+                return ((Float)returnedObject).intValue();
+            }
+            return returnedObject;
         }
-        else if (returnedObject instanceof Float) {
-            return ((Float)returnedObject).intValue();
+        finally {
+            org.mozilla.javascript.Context.exit();
         }
-        return returnedObject;
     }
 
-    private boolean conflictsWithFunctionNames(String name) {
-        if (name.equals("count")) {
-            return true;
+    private static ScriptableObject sharedScope(org.mozilla.javascript.Context cx) {
+        ScriptableObject scope = sharedScopes.get();
+        if (scope == null) {
+            scope = new ImporterTopLevel(cx, true);
+            sharedScopes.set(scope);
         }
-        return false;
+        return scope;
     }
 
     public BashTemplateJsFunctions getJsFunctions() {
@@ -147,4 +234,99 @@ public class BashTemplate {
         this.jsFunctions = jsFunctions;
     }
 
+    /**
+     * Top level scope of a single expression evaluation. Standard objects are taken from the shared scope
+     * which is used as prototype, and template parameters are looked up in the context without copying them
+     */
+    @SuppressWarnings("serial")
+    private static class ParametersScope extends ScriptableObject {
+        private static final String COUNT_FUNCTION = "count";
+        
+        private final Context context;
+        private final BashTemplateJsFunctions jsFunctions;
+        private BaseFunction countFunction;
+        
+        public ParametersScope(Scriptable sharedScope, Context context, BashTemplateJsFunctions jsFunctions) {
+            this.context = context;
+            this.jsFunctions = jsFunctions;
+            setPrototype(sharedScope);
+            setParentScope(null);
+        }
+        
+        @Override
+        public String getClassName() {
+            return "ParametersScope";
+        }
+        
+        @Override
+        public boolean has(String name, Scriptable start) {
+            if (COUNT_FUNCTION.equals(name)) {
+                return jsFunctions != null || super.has(name, start);
+            }
+            return super.has(name, start) || context.getParameters().containsKey(name);
+        }
+        
+        @Override
+        public Object get(String name, Scriptable start) {
+            if (COUNT_FUNCTION.equals(name)) {
+                if (jsFunctions != null) {
+                    return getCountFunction();
+                }
+                return super.get(name, start);
+            }
+            
+            // values assigned within expression take precedence over parameters as it was with parameters copied to scope
+            Object value = super.get(name, start);
+            if (value == NOT_FOUND && context.getParameters().containsKey(name)) {
+                return context.getParameters().get(name);
+            }
+            return value;
+        }
+        
+        private BaseFunction getCountFunction() {
+            if (countFunction == null) {
+                countFunction = new BaseFunction() {
+                    @Override
+                    public Object call(org.mozilla.javascript.Context cx, Scriptable scope, Scriptable thisObj, Object[] args) {
+                        if (args.length == 0 || !(args[0] instanceof String)) {
+                            throw new IllegalArgumentException("Should take string argument");
+                        }
+                        return jsFunctions.count((String)args[0]);
+                    }
+                };
+            }
+            return countFunction;
+        }
+    }
+
+    /**
+     * Part of compiled template which is either a plain text or an expression
+     */
+    private static class Segment {
+        private static final int TEXT = 0;
+        private static final int VARIABLE = 1;
+        private static final int JS_EXPRESSION = 2;
+        
+        private final int type;
+        private final String text;
+        
+        private Segment(int type, String text) {
+            this.type = type;
+            this.text = text;
+        }
+        
+        public static Segment text(String text) {
+            return new Segment(TEXT, text);
+        }
+        
+        public static Segment expression(String expression) {
+            if (expression.matches("[a-zA-Z0-9..._]*")) {
+                return new Segment(VARIABLE, expression);
+            }
+            else {
+                return new Segment(JS_EXPRESSION, expression);
+            }
+        }
+    }
+
 }
@@ -35,6 +35,9 @@ public class BashTemplateContext extends Context {
     }
 
     public String process(String arguments) {
+        if (BashTemplate.isLiteral(arguments)) {
+            return arguments;
+        }
         return new BashTemplate(arguments, jsFunctions).process(this);
     }
 
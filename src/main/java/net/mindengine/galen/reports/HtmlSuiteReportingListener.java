@@ -26,8 +26,10 @@ import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Future;
 
 import net.mindengine.galen.browser.Browser;
+import net.mindengine.galen.browser.SeleniumBrowser;
 import net.mindengine.galen.config.GalenConfig;
 import net.mindengine.galen.page.PageElement;
 import net.mindengine.galen.reports.model.PageAction;
@@ -77,10 +79,25 @@ public class HtmlSuiteReportingListener implements CompleteListener {
     private class Screenshot {
         private String name;
         private String filePath;
+        private Future<File> pendingFile;
         public Screenshot(String name, String filePath){
             this.name = name;
             this.filePath = filePath;
         }
+        public Screenshot(String name, Future<File> pendingFile){
+            this.name = name;
+            this.pendingFile = pendingFile;
+        }
+        public File getFile() throws IOException {
+            if (pendingFile != null) {
+                try {
+                    return pendingFile.get();
+                } catch (Exception e) {
+                    throw new IOException("Couldn't write screenshot " + name, e);
+                }
+            }
+            return new File(filePath);
+        }
     }
     
     
@@ -240,15 +257,22 @@ public class HtmlSuiteReportingListener implements CompleteListener {
     private void moveScreenshots() throws IOException {
         File folder = new File(reportFolderPath);
         for (Screenshot screenshot : screenshots) {
-            FileUtils.copyFile(new File(screenshot.filePath), new File(folder.getAbsolutePath() + File.separator + screenshot.name));
+            FileUtils.copyFile(screenshot.getFile(), new File(folder.getAbsolutePath() + File.separator + screenshot.name));
         }
     }
 
 
     private synchronized Screenshot createScreenShot() {
         screenshotId++;
-        String filePath = currentBrowser.createScreenshot();
-        Screenshot screenshot = new Screenshot(reportFileName + "-screenshot-" + screenshotId + "." + extensionFrom(filePath), filePath);
+        Screenshot screenshot;
+        if (currentBrowser instanceof SeleniumBrowser) {
+            // full page screenshots are encoded in background so the report waits for them only when it is written
+            screenshot = new Screenshot(reportFileName + "-screenshot-" + screenshotId + ".png", ((SeleniumBrowser) currentBrowser).createScreenshotFile());
+        }
+        else {
+            String filePath = currentBrowser.createScreenshot();
+            screenshot = new Screenshot(reportFileName + "-screenshot-" + screenshotId + "." + extensionFrom(filePath), filePath);
+        }
         screenshots.add(screenshot);
         return screenshot;
     }
@@ -50,6 +50,7 @@ public class GalenArguments {
     private String original;
     private Boolean printVersion;
     private String filter;
+    private String snapshot;
 
     public GalenArguments withAction(String action) {
         this.setAction(action);
@@ -152,6 +153,7 @@ public class GalenArguments {
         options.addOption("p", "parallel-suites", true, "Amount of suites to be run in parallel");
         options.addOption("v", "version", false, "Current version");
         options.addOption("f", "filter", true, "Test filter");
+        options.addOption("S", "snapshot", true, "Path to stored page snapshot or to a folder with snapshots");
         
         CommandLineParser parser = new PosixParser();
         
@@ -195,6 +197,7 @@ public class GalenArguments {
         galen.setParallelSuites(Integer.parseInt(cmd.getOptionValue("p", "0")));
         galen.setPrintVersion(cmd.hasOption("v"));
         galen.setFilter(cmd.getOptionValue("f"));
+        galen.setSnapshot(cmd.getOptionValue("S"));
         
         
         verifyArguments(galen);
@@ -233,6 +236,12 @@ public class GalenArguments {
             else if ("check".equals(galen.getAction())) {
                 verifyCheckAction(galen);
             }
+            else if ("recheck".equals(galen.getAction())) {
+                verifyRecheckAction(galen);
+            }
+            else if ("compile".equals(galen.getAction())) {
+                verifyCheckAction(galen);
+            }
             else if ("config".equals(galen.getAction())) {
                 return;
             }
@@ -246,6 +255,15 @@ public class GalenArguments {
         }
     }
 
+    private static void verifyRecheckAction(GalenArguments galen) {
+        if (galen.getPaths() == null || galen.getPaths().isEmpty()) {
+            throw new IllegalArgumentException("Missing spec files");
+        }
+        if (galen.getSnapshot() == null) {
+            throw new IllegalArgumentException("Missing snapshot");
+        }
+    }
+
     private static void verifyTestAction(GalenArguments galen) {
         if (galen.getPaths() == null || galen.getPaths().isEmpty()) {
             throw new IllegalArgumentException("Missing test files");
@@ -314,6 +332,7 @@ public class GalenArguments {
         .append(url)
         .append(parallelSuites)
         .append(filter)
+        .append(snapshot)
         .toHashCode();
     }
     
@@ -342,6 +361,7 @@ public class GalenArguments {
             .append(url, rhs.url)
             .append(filter, rhs.filter)
             .append(parallelSuites, rhs.parallelSuites)
+            .append(snapshot, rhs.snapshot)
             .isEquals();
     }
     
@@ -360,6 +380,7 @@ public class GalenArguments {
             .append("url", url)
             .append("filter", filter)
             .append("parallelSuites", parallelSuites)
+            .append("snapshot", snapshot)
             .toString();
     }
 
@@ -448,4 +469,17 @@ public class GalenArguments {
     public void setFilter(String filter) {
         this.filter = filter;
     }
+
+    public String getSnapshot() {
+        return snapshot;
+    }
+
+    public void setSnapshot(String snapshot) {
+        this.snapshot = snapshot;
+    }
+
+    public GalenArguments withSnapshot(String snapshot) {
+        this.setSnapshot(snapshot);
+        return this;
+    }
 }
\ No newline at end of file
@@ -19,6 +19,7 @@ import java.util.LinkedList;
 import java.util.List;
 
 import net.mindengine.galen.browser.Browser;
+import net.mindengine.galen.browser.SeleniumBrowser;
 import net.mindengine.galen.specs.Spec;
 import net.mindengine.galen.specs.page.PageSection;
 import net.mindengine.galen.suite.GalenPageAction;
@@ -90,6 +91,11 @@ public class GalenPageRunner implements ValidationListener {
         catch (Exception ex) {
             throw new GalenPageActionException(ex, action);
         }
+        finally {
+            if (action.changesPageState() && browser instanceof SeleniumBrowser) {
+                ((SeleniumBrowser)browser).invalidatePageState();
+            }
+        }
     }
 
     
@@ -32,6 +32,7 @@ public class Range {
     private Double from;
     private Double to;
     private String percentageOfValue;
+    private ValuePath percentageOfPath;
     private RangeType rangeType = RangeType.BETWEEN;
     
     public enum RangeType {
@@ -144,6 +145,15 @@ public class Range {
     }
     public void setPercentageOfValue(String percentageOfValue) {
         this.percentageOfValue = percentageOfValue;
+        if (percentageOfValue != null) {
+            this.percentageOfPath = ValuePath.compile(percentageOfValue);
+        }
+        else {
+            this.percentageOfPath = null;
+        }
+    }
+    public ValuePath getPercentageOfPath() {
+        return percentageOfPath;
     }
     public boolean isPercentage() {
         return percentageOfValue != null && !percentageOfValue.isEmpty();
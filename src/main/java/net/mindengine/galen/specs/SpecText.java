@@ -15,7 +15,7 @@
 ******************************************************************************/
 package net.mindengine.galen.specs;
 
-
+import java.util.regex.Pattern;
 
 public class SpecText extends Spec {
     public enum Type {
@@ -24,6 +24,7 @@ public class SpecText extends Spec {
     
     private Type type;
     private String text;
+    private volatile Pattern pattern;
 
     public SpecText(Type type, String text) {
         this.setType(type);
@@ -44,6 +45,20 @@ public class SpecText extends Spec {
 
     public void setText(String text) {
         this.text = text;
+        this.pattern = null;
+    }
+    
+    /**
+     * @return the text compiled as regular expression. It is compiled only once for all checks of this spec,
+     * in case it is checked from different threads at the same time the pattern could be compiled once in each of them
+     */
+    public Pattern getPattern() {
+        Pattern compiledPattern = pattern;
+        if (compiledPattern == null) {
+            compiledPattern = Pattern.compile(text);
+            pattern = compiledPattern;
+        }
+        return compiledPattern;
     }
 
     
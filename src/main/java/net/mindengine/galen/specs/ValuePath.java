@@ -0,0 +1,145 @@
+/*******************************************************************************
+* Copyright 2014 Ivan Shubin http://mindengine.net
+* 
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+* 
+*   http://www.apache.org/licenses/LICENSE-2.0
+* 
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+******************************************************************************/
+package net.mindengine.galen.specs;
+
+import static java.lang.String.format;
+import static net.mindengine.galen.suite.reader.Line.UNKNOWN_LINE;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+
+import net.mindengine.galen.parser.SyntaxException;
+
+/**
+ * Compiled form of a value path used in relative ranges (e.g. "screen/width").
+ * The path is split into the object name and a chain of getters once,
+ * and every getter remembers the method it resolved for the last seen class.
+ */
+public class ValuePath {
+
+    private final String path;
+    private final String objectName;
+    private final FieldAccessor[] accessors;
+
+    private ValuePath(String path, String objectName, FieldAccessor[] accessors) {
+        this.path = path;
+        this.objectName = objectName;
+        this.accessors = accessors;
+    }
+
+    /**
+     * Compiles the given path. An incorrect path is not reported here
+     * but only when it is evaluated, same as if it was not compiled at all.
+     * Fields are split in the same way as they were read without compilation:
+     * whatever is left after the last separator which is neither first nor last is taken as the name of the last field
+     */
+    public static ValuePath compile(String path) {
+        int index = path.indexOf("/");
+        if (index > 0 && index < path.length() - 1) {
+            List<FieldAccessor> accessors = new ArrayList<FieldAccessor>();
+            String fieldPath = path.substring(index + 1);
+            
+            int fieldIndex = fieldPath.indexOf("/");
+            while (fieldIndex > 0 && fieldIndex < fieldPath.length() - 1) {
+                accessors.add(new FieldAccessor(fieldPath.substring(0, fieldIndex)));
+                fieldPath = fieldPath.substring(fieldIndex + 1);
+                fieldIndex = fieldPath.indexOf("/");
+            }
+            accessors.add(new FieldAccessor(fieldPath));
+            
+            return new ValuePath(path, path.substring(0, index), accessors.toArray(new FieldAccessor[accessors.size()]));
+        }
+        else return new ValuePath(path, null, null);
+    }
+
+    public String getObjectName() {
+        if (objectName == null) {
+            throw new SyntaxException(UNKNOWN_LINE, format("Value path is incorrect %s", path));
+        }
+        return objectName;
+    }
+
+    public Object getValue(Object object) {
+        Object value = object;
+        for (int i = 0; i < accessors.length; i++) {
+            value = accessors[i].getValue(value);
+            if (value == null && i < accessors.length - 1) {
+                throw new NullPointerException(format("\"%s\" returned null", accessors[i].getFieldName()));
+            }
+        }
+        return value;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    @Override
+    public String toString() {
+        return path;
+    }
+
+    private static class FieldAccessor {
+        private final String fieldName;
+        private final String getterName;
+        private volatile ResolvedMethod resolved;
+
+        public FieldAccessor(String fieldName) {
+            this.fieldName = fieldName;
+            this.getterName = fieldName.isEmpty() ? null : "get" + fieldName.substring(0, 1).toUpperCase() + fieldName.substring(1);
+        }
+
+        public Object getValue(Object object) {
+            try {
+                return findMethod(object.getClass()).invoke(object);
+            } catch (Exception e) {
+                throw new SyntaxException(UNKNOWN_LINE, format("Cannot read field: \"%s\"", fieldName));
+            }
+        }
+
+        private Method findMethod(Class<?> objectClass) throws NoSuchMethodException {
+            ResolvedMethod current = resolved;
+            if (current != null && current.objectClass == objectClass) {
+                return current.method;
+            }
+            if (getterName == null) {
+                throw new NoSuchMethodException("Field name is empty");
+            }
+            Method method = objectClass.getMethod(getterName);
+            if (!Modifier.isPublic(method.getDeclaringClass().getModifiers())) {
+                method.setAccessible(true);
+            }
+            resolved = new ResolvedMethod(objectClass, method);
+            return method;
+        }
+
+        public String getFieldName() {
+            return fieldName;
+        }
+    }
+
+    private static class ResolvedMethod {
+        private final Class<?> objectClass;
+        private final Method method;
+
+        public ResolvedMethod(Class<?> objectClass, Method method) {
+            this.objectClass = objectClass;
+            this.method = method;
+        }
+    }
+}
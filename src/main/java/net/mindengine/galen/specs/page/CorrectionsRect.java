@@ -15,6 +15,8 @@
 ******************************************************************************/
 package net.mindengine.galen.specs.page;
 
+import net.mindengine.galen.page.Rect;
+
 import org.apache.commons.lang3.builder.EqualsBuilder;
 import org.apache.commons.lang3.builder.HashCodeBuilder;
 import org.apache.commons.lang3.builder.ToStringBuilder;
@@ -139,6 +141,13 @@ public class CorrectionsRect {
                 simpleCorrectionValue(height));
     }
     
+    public Rect correct(Rect rect) {
+        return new Rect(left.correct(rect.getLeft()),
+                top.correct(rect.getTop()),
+                width.correct(rect.getWidth()),
+                height.correct(rect.getHeight()));
+    }
+    
     private static Correction simpleCorrectionValue(int value) {
         Type type = Type.PLUS;
         if (value < 0) {
@@ -19,11 +19,13 @@ import java.util.LinkedList;
 import java.util.List;
 
 import net.mindengine.galen.specs.Spec;
+import net.mindengine.galen.validation.SpecValidation;
 
 public class ObjectSpecs {
 
     private String objectName;
     private List<Spec> specs = new LinkedList<Spec>();
+    private List<SpecValidation<? extends Spec>> validations = new LinkedList<SpecValidation<? extends Spec>>();
 
     public ObjectSpecs(String objectName) {
         this.objectName = objectName;
@@ -43,6 +45,26 @@ public class ObjectSpecs {
 
     public void setSpecs(List<Spec> specs) {
         this.specs = specs;
+        this.validations = new LinkedList<SpecValidation<? extends Spec>>();
+    }
+
+    /**
+     * Adds the spec together with its validation which is resolved when the spec is read
+     * so that it is not looked up again on each check
+     */
+    public void addSpec(Spec spec, SpecValidation<? extends Spec> validation) {
+        specs.add(spec);
+        validations.add(validation);
+    }
+
+    /**
+     * @return validations of all specs in the same order or null in case some specs were added without their validation
+     */
+    public List<SpecValidation<? extends Spec>> getValidations() {
+        if (validations.size() == specs.size()) {
+            return validations;
+        }
+        return null;
     }
 
 }
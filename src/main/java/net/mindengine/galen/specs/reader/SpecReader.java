@@ -30,6 +30,7 @@ import static net.mindengine.galen.suite.reader.Line.UNKNOWN_LINE;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -65,15 +66,26 @@ import net.mindengine.galen.specs.colors.ColorRange;
 
 public class SpecReader {
     
-    private Map<Pattern, SpecProcessor> specsMap = new HashMap<Pattern, SpecProcessor>();
+    private static final Pattern KEYWORD_PATTERN = Pattern.compile("^[a-z]+");
+    
+    /**
+     * All spec processors are stateless so they are created once and shared between all spec readers.
+     * Processors are indexed by the first word of the spec so that only the patterns of that word are matched
+     */
+    private static final Map<String, List<SpecPattern>> specsByKeyword = new HashMap<String, List<SpecPattern>>();
+    private static final List<SpecPattern> allSpecs = new ArrayList<SpecPattern>();
+    
+    static {
+        initSpecs();
+    }
+    
     private Browser browser;
     
     public SpecReader(Browser browser) {
-        initSpecs();
         this.setBrowser(browser);
     }
     
-    private void initSpecs() {
+    private static void initSpecs() {
         
         putSpec("absent", new SimpleSpecProcessor(new SpecInit() {
             public Spec init() {
@@ -168,7 +180,7 @@ public class SpecReader {
             }
         }));
         
-        putSpec("(above|below)", new SpecProcessor() {
+        SpecProcessor directionSpecProcessor = new SpecProcessor() {
             @Override
             public Spec processSpec(String specName, String paramsText, String contextPath) throws IOException {
 				
@@ -188,7 +200,9 @@ public class SpecReader {
 				}
 				else return new SpecBelow(objectName, range);
 			}
-        });
+        };
+        putSpec("above", directionSpecProcessor);
+        putSpec("below", directionSpecProcessor);
         
         putSpec("aligned\\s+.*", new SpecObjectAndErrorRateProcessor(new SpecObjectAndErrorRateInit() {
             
@@ -263,7 +277,7 @@ public class SpecReader {
             }
 		}));
         
-        putSpec("(on\\s.*|on)", new SpecComplexProcessor(expectThese(objectName(), locations()), new SpecComplexInit() {
+        putSpec("on(\\s.*)?", new SpecComplexProcessor(expectThese(objectName(), locations()), new SpecComplexInit() {
             @SuppressWarnings("unchecked")
             @Override
             public Spec init(String specName, Object[] args) {
@@ -388,18 +402,55 @@ public class SpecReader {
     }
 
     private SpecProcessor findMatchingSpec(String specName) {
-        
-        for (Map.Entry<Pattern, SpecProcessor> entry : specsMap.entrySet()) {
-            Matcher matcher = entry.getKey().matcher(specName);
-            if (matcher.matches()) {
-                return entry.getValue();
+        List<SpecPattern> keywordSpecs = specsByKeyword.get(firstWord(specName));
+        if (keywordSpecs != null) {
+            SpecProcessor specProcessor = findMatchingSpec(keywordSpecs, specName);
+            if (specProcessor != null) {
+                return specProcessor;
             }
         }
+        
+        // Some patterns also allow spec names that don't start with a separate keyword (e.g. "inside.*")
+        SpecProcessor specProcessor = findMatchingSpec(allSpecs, specName);
+        if (specProcessor != null) {
+            return specProcessor;
+        }
         throw new SyntaxException(UNKNOWN_LINE, "Such constraint does not exist: " + specName);
     }
 
-    private void putSpec(String patternText, SpecProcessor specProcessor) {
-        specsMap.put(Pattern.compile(patternText), specProcessor);
+    private static SpecProcessor findMatchingSpec(List<SpecPattern> specs, String specName) {
+        for (SpecPattern spec : specs) {
+            if (spec.matches(specName)) {
+                return spec.specProcessor;
+            }
+        }
+        return null;
+    }
+
+    private static String firstWord(String specName) {
+        int index = 0;
+        while (index < specName.length() && !Character.isWhitespace(specName.charAt(index))) {
+            index++;
+        }
+        return specName.substring(0, index);
+    }
+
+    private static void putSpec(String patternText, SpecProcessor specProcessor) {
+        Matcher keywordMatcher = KEYWORD_PATTERN.matcher(patternText);
+        if (!keywordMatcher.find()) {
+            throw new IllegalArgumentException("Spec pattern should start with a keyword: " + patternText);
+        }
+        String keyword = keywordMatcher.group();
+        
+        SpecPattern spec = new SpecPattern(keyword, Pattern.compile(patternText), specProcessor);
+        allSpecs.add(spec);
+        
+        List<SpecPattern> keywordSpecs = specsByKeyword.get(keyword);
+        if (keywordSpecs == null) {
+            keywordSpecs = new ArrayList<SpecPattern>();
+            specsByKeyword.put(keyword, keywordSpecs);
+        }
+        keywordSpecs.add(spec);
     }
 
     public Browser getBrowser() {
@@ -409,4 +460,24 @@ public class SpecReader {
     public void setBrowser(Browser browser) {
         this.browser = browser;
     }
+
+    private static class SpecPattern {
+        private final String keyword;
+        private final Pattern pattern;
+        private final SpecProcessor specProcessor;
+        
+        public SpecPattern(String keyword, Pattern pattern, SpecProcessor specProcessor) {
+            this.keyword = keyword;
+            this.pattern = pattern;
+            this.specProcessor = specProcessor;
+        }
+        
+        public boolean matches(String specName) {
+            if (specName.equals(keyword)) {
+                // most of the specs are written with a single keyword so there is no need to run the regex for them
+                return pattern.pattern().equals(keyword) || pattern.matcher(specName).matches();
+            }
+            return pattern.matcher(specName).matches();
+        }
+    }
 }
@@ -0,0 +1,352 @@
+/*******************************************************************************
+* Copyright 2014 Ivan Shubin http://mindengine.net
+* 
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+* 
+*   http://www.apache.org/licenses/LICENSE-2.0
+* 
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+******************************************************************************/
+package net.mindengine.galen.specs.reader.page;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import net.mindengine.galen.parser.BashTemplate;
+import net.mindengine.galen.specs.Spec;
+import net.mindengine.galen.specs.SpecComponent;
+import net.mindengine.galen.specs.page.ConditionalBlock;
+import net.mindengine.galen.specs.page.ConditionalBlockStatement;
+import net.mindengine.galen.specs.page.CorrectionsRect;
+import net.mindengine.galen.specs.page.CorrectionsRect.Correction;
+import net.mindengine.galen.specs.page.Locator;
+import net.mindengine.galen.specs.page.ObjectSpecs;
+import net.mindengine.galen.specs.page.PageSection;
+import net.mindengine.galen.specs.reader.SpecReader;
+import net.mindengine.galen.validation.ValidationFactory;
+
+/**
+ * Stores page specs in a compact binary format next to their spec files, so that they could be loaded
+ * without processing templates, imports and parameterizations again.
+ * The compiled file keeps versions of all spec files it was read from and is only used while none of them were modified.
+ * System properties used in templates are stored with their values and the compiled file is only used while they stay the same.
+ * Spec files with javascript expressions in templates are not compiled as their result could be different on each reading.
+ * Specs are stored by their text and are read again with spec reader when the compiled file is loaded
+ * @author ishubin
+ *
+ */
+public class CompiledPageSpecStorage {
+
+    public static final String COMPILED_EXTENSION = ".compiled";
+    private static final int MAGIC = 0x47535043;
+    private static final int VERSION = 2;
+
+    /**
+     * Reads the spec file without browser and stores it in a compiled file next to it.
+     * @return compiled file or null in case the spec file uses templates after multi object definitions
+     * and therefore depends on the checked page, or in case its templates contain javascript expressions
+     */
+    public static File compile(File specFile) throws IOException {
+        specFile = specFile.getAbsoluteFile();
+
+        PageSpecReader pageSpecReader = new PageSpecReader(null);
+        pageSpecReader.setMultiObjectsDeferred(true);
+        PageSpec pageSpec = pageSpecReader.read(specFile);
+
+        if (pageSpecReader.hasTemplatesAfterDeferredMultiObjects() || pageSpecReader.hasJavascriptInTemplates()) {
+            return null;
+        }
+
+        File compiledFile = compiledFileFor(specFile);
+        save(compiledFile, pageSpec, pageSpecReader.getProcessedFiles(), pageSpecReader.getTemplateVariables());
+        return compiledFile;
+    }
+
+    public static File compiledFileFor(File specFile) {
+        return new File(specFile.getPath() + COMPILED_EXTENSION);
+    }
+
+    public static void save(File compiledFile, PageSpec pageSpec, Collection<String> sourceFiles, Map<String, String> templateVariables) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(compiledFile)));
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+
+            out.writeInt(sourceFiles.size());
+            for (String sourceFile : sourceFiles) {
+                out.writeUTF(sourceFile);
+                out.writeUTF(fileVersion(new File(sourceFile)));
+            }
+
+            out.writeInt(templateVariables.size());
+            for (Map.Entry<String, String> variable : templateVariables.entrySet()) {
+                out.writeUTF(variable.getKey());
+                out.writeUTF(variable.getValue());
+            }
+
+            writeLocators(out, pageSpec.getObjects());
+            writeLocators(out, pageSpec.getMultiObjects());
+
+            out.writeInt(pageSpec.getSections().size());
+            for (PageSection section : pageSpec.getSections()) {
+                writeSection(out, section);
+            }
+        }
+        finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Loads compiled page spec for the given page spec reader. Spec files of the compiled page spec are marked as processed
+     * and its multi objects are handled in the same way as if they were defined in the spec file.
+     * @return page spec or null in case compiled file is outdated, has a different version of format,
+     * any of system properties used in its templates has changed or any of its spec files were already processed by page spec reader
+     */
+    public static PageSpec load(File compiledFile, PageSpecReader pageSpecReader) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(compiledFile)));
+        try {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a compiled page spec: " + compiledFile.getAbsolutePath());
+            }
+            if (in.readInt() != VERSION) {
+                return null;
+            }
+
+            int sourcesAmount = in.readInt();
+            List<String> sourceFiles = new ArrayList<String>(sourcesAmount);
+            for (int i = 0; i < sourcesAmount; i++) {
+                String sourceFile = in.readUTF();
+                String version = in.readUTF();
+                if (pageSpecReader.getProcessedFiles().contains(sourceFile) || !fileVersion(new File(sourceFile)).equals(version)) {
+                    return null;
+                }
+                sourceFiles.add(sourceFile);
+            }
+
+            int variablesAmount = in.readInt();
+            Map<String, String> templateVariables = new LinkedHashMap<String, String>();
+            for (int i = 0; i < variablesAmount; i++) {
+                String name = in.readUTF();
+                String value = in.readUTF();
+                if (!BashTemplate.readSystemVariable(name).equals(value)) {
+                    return null;
+                }
+                templateVariables.put(name, value);
+            }
+
+            PageSpec pageSpec = new PageSpec();
+            pageSpec.setObjects(readLocators(in, new HashMap<String, Locator>()));
+            Map<String, Locator> multiObjects = readLocators(in, new LinkedHashMap<String, Locator>());
+
+            SpecReader specReader = pageSpecReader.getSpecReader();
+            int sectionsAmount = in.readInt();
+            for (int i = 0; i < sectionsAmount; i++) {
+                pageSpec.addSection(readSection(in, specReader));
+            }
+
+            pageSpecReader.getProcessedFiles().addAll(sourceFiles);
+            pageSpecReader.getTemplateVariables().putAll(templateVariables);
+            for (Map.Entry<String, Locator> multiObject : multiObjects.entrySet()) {
+                pageSpecReader.addMultiObject(pageSpec, multiObject.getKey(), multiObject.getValue());
+            }
+            return pageSpec;
+        }
+        finally {
+            in.close();
+        }
+    }
+
+    private static void writeSection(DataOutputStream out, PageSection section) throws IOException {
+        writeString(out, section.getName());
+
+        out.writeBoolean(section.getTags() != null);
+        if (section.getTags() != null) {
+            out.writeInt(section.getTags().size());
+            for (String tag : section.getTags()) {
+                out.writeUTF(tag);
+            }
+        }
+
+        writeObjects(out, section.getObjects());
+
+        List<ConditionalBlock> conditionalBlocks = section.getConditionalBlocks();
+        out.writeInt(conditionalBlocks != null ? conditionalBlocks.size() : 0);
+        if (conditionalBlocks != null) {
+            for (ConditionalBlock conditionalBlock : conditionalBlocks) {
+                out.writeInt(conditionalBlock.getStatements().size());
+                for (ConditionalBlockStatement statement : conditionalBlock.getStatements()) {
+                    out.writeBoolean(statement.isInverted());
+                    writeObjects(out, statement.getObjects());
+                }
+                writeObjects(out, conditionalBlock.getBodyObjects());
+                writeObjects(out, conditionalBlock.getOtherwiseObjects());
+            }
+        }
+    }
+
+    private static PageSection readSection(DataInputStream in, SpecReader specReader) throws IOException {
+        PageSection section = new PageSection();
+        section.setName(readString(in));
+
+        if (in.readBoolean()) {
+            int tagsAmount = in.readInt();
+            List<String> tags = new LinkedList<String>();
+            for (int i = 0; i < tagsAmount; i++) {
+                tags.add(in.readUTF());
+            }
+            section.setTags(tags);
+        }
+
+        section.setObjects(readObjects(in, specReader));
+
+        int blocksAmount = in.readInt();
+        for (int i = 0; i < blocksAmount; i++) {
+            ConditionalBlock conditionalBlock = new ConditionalBlock();
+
+            int statementsAmount = in.readInt();
+            List<ConditionalBlockStatement> statements = new LinkedList<ConditionalBlockStatement>();
+            for (int j = 0; j < statementsAmount; j++) {
+                ConditionalBlockStatement statement = new ConditionalBlockStatement();
+                statement.setInverted(in.readBoolean());
+                statement.setObjects(readObjects(in, specReader));
+                statements.add(statement);
+            }
+            conditionalBlock.setStatements(statements);
+            conditionalBlock.setBodyObjects(readObjects(in, specReader));
+            conditionalBlock.setOtherwiseObjects(readObjects(in, specReader));
+            section.addConditionalBlock(conditionalBlock);
+        }
+        return section;
+    }
+
+    private static void writeObjects(DataOutputStream out, List<ObjectSpecs> objects) throws IOException {
+        out.writeBoolean(objects != null);
+        if (objects != null) {
+            out.writeInt(objects.size());
+            for (ObjectSpecs objectSpecs : objects) {
+                out.writeUTF(objectSpecs.getObjectName());
+                out.writeInt(objectSpecs.getSpecs().size());
+                for (Spec spec : objectSpecs.getSpecs()) {
+                    out.writeUTF(spec.getOriginalText());
+                    // component spec path is resolved from the location of spec file while reading
+                    if (spec instanceof SpecComponent) {
+                        writeString(out, ((SpecComponent)spec).getSpecPath());
+                    }
+                }
+            }
+        }
+    }
+
+    private static List<ObjectSpecs> readObjects(DataInputStream in, SpecReader specReader) throws IOException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+
+        int objectsAmount = in.readInt();
+        List<ObjectSpecs> objects = new LinkedList<ObjectSpecs>();
+        for (int i = 0; i < objectsAmount; i++) {
+            ObjectSpecs objectSpecs = new ObjectSpecs(in.readUTF());
+            int specsAmount = in.readInt();
+            for (int j = 0; j < specsAmount; j++) {
+                Spec spec = specReader.read(in.readUTF());
+                if (spec instanceof SpecComponent) {
+                    ((SpecComponent)spec).setSpecPath(readString(in));
+                }
+                objectSpecs.addSpec(spec, ValidationFactory.getValidation(spec));
+            }
+            objects.add(objectSpecs);
+        }
+        return objects;
+    }
+
+    private static void writeLocators(DataOutputStream out, Map<String, Locator> locators) throws IOException {
+        out.writeInt(locators.size());
+        for (Map.Entry<String, Locator> entry : locators.entrySet()) {
+            out.writeUTF(entry.getKey());
+
+            Locator locator = entry.getValue();
+            out.writeUTF(locator.getLocatorType());
+            out.writeUTF(locator.getLocatorValue());
+            out.writeInt(locator.getIndex());
+
+            CorrectionsRect corrections = locator.getCorrections();
+            out.writeBoolean(corrections != null);
+            if (corrections != null) {
+                writeCorrection(out, corrections.getLeft());
+                writeCorrection(out, corrections.getTop());
+                writeCorrection(out, corrections.getWidth());
+                writeCorrection(out, corrections.getHeight());
+            }
+        }
+    }
+
+    private static Map<String, Locator> readLocators(DataInputStream in, Map<String, Locator> locators) throws IOException {
+        int amount = in.readInt();
+        for (int i = 0; i < amount; i++) {
+            String objectName = in.readUTF();
+
+            Locator locator = new Locator(in.readUTF(), in.readUTF(), in.readInt());
+            if (in.readBoolean()) {
+                locator.setCorrections(new CorrectionsRect(readCorrection(in), readCorrection(in), readCorrection(in), readCorrection(in)));
+            }
+            locators.put(objectName, locator);
+        }
+        return locators;
+    }
+
+    private static void writeCorrection(DataOutputStream out, Correction correction) throws IOException {
+        out.writeBoolean(correction != null);
+        if (correction != null) {
+            out.writeInt(correction.getValue());
+            out.writeUTF(correction.getType().name());
+        }
+    }
+
+    private static Correction readCorrection(DataInputStream in) throws IOException {
+        if (in.readBoolean()) {
+            return new Correction(in.readInt(), CorrectionsRect.Type.valueOf(in.readUTF()));
+        }
+        else return null;
+    }
+
+    private static void writeString(DataOutputStream out, String text) throws IOException {
+        out.writeBoolean(text != null);
+        if (text != null) {
+            out.writeUTF(text);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        if (in.readBoolean()) {
+            return in.readUTF();
+        }
+        else return null;
+    }
+
+    /**
+     * File size is used together with modification time as the latter has a precision of a second on some file systems
+     */
+    private static String fileVersion(File file) {
+        return file.lastModified() + ":" + file.length();
+    }
+}
@@ -15,6 +15,7 @@
 ******************************************************************************/
 package net.mindengine.galen.specs.reader.page;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
@@ -29,9 +30,19 @@ import net.mindengine.galen.specs.page.PageSection;
 public class PageSpec {
 
     private static final List<String> EMPTY_TAGS = new LinkedList<String>();
+    private static final String REGEX_SPECIAL_SYMBOLS = "\\[](){}.*+?^$|";
+    private static final String QUANTIFIERS = "*+?{";
     private Map<String, Locator> objects = new HashMap<String, Locator>();
     private Map<String, Locator> multiObjects = new HashMap<String, Locator>();
     private List<PageSection> sections = new LinkedList<PageSection>();
+    
+    /**
+     * Resolved object names by regular expressions. As object names are only added to page spec
+     * the cache is valid as long as the objects map and its size stay the same
+     */
+    private final Map<String, List<String>> matchingNamesCache = new HashMap<String, List<String>>();
+    private Map<String, Locator> cachedObjects;
+    private int cachedObjectsSize;
 
     public Map<String, Locator> getObjects() {
         return this.objects;
@@ -85,19 +96,62 @@ public class PageSpec {
      * @return
      */
     public List<String> findMatchingObjectNames(String objectNameSimpleRegex) {
+        return new LinkedList<String>(findObjectNamesMatchingRegex(objectNameSimpleRegex.replace("*", "[a-zA-Z0-9_]+")));
+    }
+    
+    /**
+     * Finds all object names matching the regular expression. The results are cached until new objects are added
+     * @param regex - java regular expression
+     * @return unmodifiable list of object names
+     */
+    public synchronized List<String> findObjectNamesMatchingRegex(String regex) {
+        if (cachedObjects != objects || cachedObjectsSize != objects.size()) {
+            matchingNamesCache.clear();
+            cachedObjects = objects;
+            cachedObjectsSize = objects.size();
+        }
         
-        Pattern pattern = Pattern.compile(objectNameSimpleRegex.replace("*", "[a-zA-Z0-9_]+"));
-        List<String> foundObjects = new LinkedList<String>();
+        List<String> names = matchingNamesCache.get(regex);
+        if (names == null) {
+            names = Collections.unmodifiableList(scanObjectNames(regex));
+            matchingNamesCache.put(regex, names);
+        }
+        return names;
+    }
+
+    private List<String> scanObjectNames(String regex) {
+        Pattern pattern = Pattern.compile(regex);
+        String prefix = literalPrefix(regex);
         
+        List<String> foundObjects = new LinkedList<String>();
         for (String objectName : objects.keySet()) {
-            if (pattern.matcher(objectName).matches()) {
+            if (objectName.startsWith(prefix) && pattern.matcher(objectName).matches()) {
                 foundObjects.add(objectName);
             }
         }
-        
         return foundObjects;
     }
 
+    /**
+     * @return the beginning of regular expression that has no special symbols,
+     * so that most of the names could be skipped without running the regex matcher
+     */
+    private static String literalPrefix(String regex) {
+        if (regex.indexOf('|') >= 0) {
+            return "";
+        }
+        
+        int length = 0;
+        while (length < regex.length() && REGEX_SPECIAL_SYMBOLS.indexOf(regex.charAt(length)) < 0) {
+            length++;
+        }
+        if (length < regex.length() && QUANTIFIERS.indexOf(regex.charAt(length)) >= 0 && length > 0) {
+            // quantifier applies to the last literal symbol so it is not a part of prefix
+            length--;
+        }
+        return regex.substring(0, length);
+    }
+
     public Map<String, Locator> getMultiObjects() {
         return multiObjects;
     }
@@ -135,6 +189,23 @@ public class PageSpec {
 		sections.addAll(spec.getSections());
 	}
 
+    /**
+     * Creates a copy with its own objects so that it could be updated with multi objects
+     * of a specific page without affecting this page spec. Sections are shared between copies
+     */
+    public PageSpec copy() {
+        PageSpec copy = new PageSpec();
+        // objects are put one by one so that the copy iterates them in the same order as the original
+        for (Map.Entry<String, Locator> object : objects.entrySet()) {
+            copy.objects.put(object.getKey(), object.getValue());
+        }
+        for (Map.Entry<String, Locator> multiObject : multiObjects.entrySet()) {
+            copy.multiObjects.put(multiObject.getKey(), multiObject.getValue());
+        }
+        copy.sections.addAll(sections);
+        return copy;
+    }
+
     public List<PageSection> findSections(SectionFilter sectionFilter) {
         if (sectionFilter != null) {
             return findSections(sectionFilter.getIncludedTags(), sectionFilter.getExcludedTags());
@@ -0,0 +1,194 @@
+/*******************************************************************************
+* Copyright 2014 Ivan Shubin http://mindengine.net
+* 
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+* 
+*   http://www.apache.org/licenses/LICENSE-2.0
+* 
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+******************************************************************************/
+package net.mindengine.galen.specs.reader.page;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import net.mindengine.galen.browser.Browser;
+import net.mindengine.galen.config.GalenConfig;
+import net.mindengine.galen.page.Page;
+import net.mindengine.galen.parser.BashTemplate;
+import net.mindengine.galen.specs.page.Locator;
+
+/**
+ * Process-wide cache of parsed page specs which is shared between all check actions, pages and suites.
+ * Cached page specs are reused as long as none of the files they were read from (including imported ones) were modified.
+ * Page specs are read with deferred multi objects so that they don't depend on a page. Each call returns copies
+ * of the cached page specs with multi objects fetched for the current page of the given browser.
+ * Cached page specs are also outdated once any of system properties used in their templates has changed.
+ * Page specs that use templates after multi object definitions are not cached, as the templates might depend on the fetched objects.
+ * Page specs with javascript in templates are not cached either, as the same expression could give a different result on each read
+ * (the same way as they are never compiled by {@link CompiledPageSpecStorage}). For such page specs only the files
+ * and template values are remembered, so that they are read just once on each call until any of them changes.
+ */
+public class PageSpecCache {
+
+    private static final PageSpecCache _instance = new PageSpecCache();
+    
+    private final Map<String, CachedPageSpecs> pageSpecs = new ConcurrentHashMap<String, CachedPageSpecs>();
+    
+    private PageSpecCache() {
+    }
+    
+    public static PageSpecCache get() {
+        return _instance;
+    }
+    
+    public PageSpec read(File file, Browser browser) throws IOException {
+        return read(Arrays.asList(file), browser).get(0);
+    }
+    
+    /**
+     * Reads all files with a single page spec reader, so that same files imported by different specs are only taken once
+     */
+    public List<PageSpec> read(List<File> files, Browser browser) throws IOException {
+        if (!isEnabled()) {
+            return readAll(new PageSpecReader(browser), files);
+        }
+        
+        String key = cacheKey(files);
+        CachedPageSpecs cachedPageSpecs = pageSpecs.get(key);
+        if (cachedPageSpecs != null && cachedPageSpecs.isUpToDate()) {
+            if (cachedPageSpecs.pageSpecs == null) {
+                return readAll(new PageSpecReader(browser), files);
+            }
+            return copyForPage(cachedPageSpecs.pageSpecs, browser);
+        }
+        
+        Map<String, String> fileVersions = new HashMap<String, String>();
+        for (File file : files) {
+            fileVersions.put(file.getAbsolutePath(), fileVersion(file));
+        }
+        
+        PageSpecReader pageSpecReader = new PageSpecReader(browser);
+        pageSpecReader.setMultiObjectsDeferred(true);
+        List<PageSpec> readPageSpecs = readAll(pageSpecReader, files);
+        
+        for (String processedFile : pageSpecReader.getProcessedFiles()) {
+            if (!fileVersions.containsKey(processedFile)) {
+                fileVersions.put(processedFile, fileVersion(new File(processedFile)));
+            }
+        }
+        Map<String, String> templateVariables = new LinkedHashMap<String, String>(pageSpecReader.getTemplateVariables());
+        
+        if (pageSpecReader.hasTemplatesAfterDeferredMultiObjects()) {
+            pageSpecs.put(key, new CachedPageSpecs(null, fileVersions, templateVariables));
+            return readAll(new PageSpecReader(browser), files);
+        }
+        else if (pageSpecReader.hasJavascriptInTemplates()) {
+            pageSpecs.put(key, new CachedPageSpecs(null, fileVersions, templateVariables));
+            return copyForPage(readPageSpecs, browser);
+        }
+        else {
+            pageSpecs.put(key, new CachedPageSpecs(readPageSpecs, fileVersions, templateVariables));
+            return copyForPage(readPageSpecs, browser);
+        }
+    }
+    
+    public void clear() {
+        pageSpecs.clear();
+    }
+
+    private static List<PageSpec> readAll(PageSpecReader pageSpecReader, List<File> files) throws IOException {
+        List<PageSpec> readPageSpecs = new ArrayList<PageSpec>(files.size());
+        for (File file : files) {
+            readPageSpecs.add(pageSpecReader.read(file));
+        }
+        return readPageSpecs;
+    }
+
+    /**
+     * Creates copies of page specs and fetches their multi objects from browser
+     * in the same way as page spec reader does it when multi objects are not deferred
+     */
+    private static List<PageSpec> copyForPage(List<PageSpec> cachedPageSpecs, Browser browser) {
+        List<PageSpec> copies = new ArrayList<PageSpec>(cachedPageSpecs.size());
+        for (PageSpec cachedPageSpec : cachedPageSpecs) {
+            if (cachedPageSpec == null) {
+                copies.add(null);
+            }
+            else {
+                PageSpec copy = cachedPageSpec.copy();
+                if (browser != null && !copy.getMultiObjects().isEmpty()) {
+                    Page page = browser.getPage();
+                    for (Map.Entry<String, Locator> multiObject : copy.getMultiObjects().entrySet()) {
+                        copy.updateMultiObject(page, multiObject.getKey(), multiObject.getValue());
+                    }
+                    copy.setMultiObjects(new HashMap<String, Locator>());
+                }
+                copies.add(copy);
+            }
+        }
+        return copies;
+    }
+
+    private static String cacheKey(List<File> files) {
+        StringBuilder key = new StringBuilder();
+        for (File file : files) {
+            key.append(file.getAbsolutePath()).append(File.pathSeparatorChar);
+        }
+        return key.toString();
+    }
+
+    private static boolean isEnabled() {
+        return GalenConfig.getConfig().getBooleanProperty("galen.specs.cache", true);
+    }
+
+    /**
+     * File size is used together with modification time as the latter has a precision of a second on some file systems
+     */
+    private static String fileVersion(File file) {
+        return file.lastModified() + ":" + file.length();
+    }
+    
+    /**
+     * Page specs are null in case they could not be cached. Then the entry only tells
+     * that the same files don't have to be read with deferred multi objects again
+     */
+    private static class CachedPageSpecs {
+        private final List<PageSpec> pageSpecs;
+        private final Map<String, String> fileVersions;
+        private final Map<String, String> templateVariables;
+        
+        public CachedPageSpecs(List<PageSpec> pageSpecs, Map<String, String> fileVersions, Map<String, String> templateVariables) {
+            this.pageSpecs = pageSpecs;
+            this.fileVersions = fileVersions;
+            this.templateVariables = templateVariables;
+        }
+        
+        public boolean isUpToDate() {
+            for (Map.Entry<String, String> fileVersion : fileVersions.entrySet()) {
+                if (!fileVersion(new File(fileVersion.getKey())).equals(fileVersion.getValue())) {
+                    return false;
+                }
+            }
+            for (Map.Entry<String, String> templateVariable : templateVariables.entrySet()) {
+                if (!BashTemplate.readSystemVariable(templateVariable.getKey()).equals(templateVariable.getValue())) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -22,13 +22,18 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Set;
-import java.util.regex.Pattern;
 
 import net.mindengine.galen.browser.Browser;
+import net.mindengine.galen.config.GalenConfig;
+import net.mindengine.galen.parser.BashTemplate;
 import net.mindengine.galen.parser.BashTemplateContext;
 import net.mindengine.galen.parser.BashTemplateJsFunctions;
 import net.mindengine.galen.parser.FileSyntaxException;
+import net.mindengine.galen.specs.page.Locator;
+import net.mindengine.galen.specs.reader.SpecReader;
 
 public class PageSpecReader implements BashTemplateJsFunctions {
     
@@ -54,18 +59,54 @@ public class PageSpecReader implements BashTemplateJsFunctions {
 	// Used to store information about spec files that were already loaded
 	private Set<String> processedFiles = new HashSet<String>();
 	
+	// When enabled multi objects are not fetched from browser while reading
+	// but are left in page spec so that they can be fetched later for a specific page
+	private boolean multiObjectsDeferred = false;
+	
+	// Set when a template was processed after a multi object was deferred
+	// so the template could have needed the fetched multi objects
+	private boolean templatesAfterDeferredMultiObjects = false;
+	private boolean hasDeferredMultiObjects = false;
+	
+	// Templates of spec files are resolved from system properties or evaluated with javascript
+	// so they are remembered in order to tell whether the read page spec could be reused later
+	private Map<String, String> templateVariables = new LinkedHashMap<String, String>();
+	private boolean javascriptInTemplates = false;
+	
+	private SpecReader specReader;
+	
     public PageSpec read(File file) throws IOException {
         String absolutePath = file.getAbsolutePath();
 
     	if (processedFiles.contains(absolutePath)) {
     		return null;
     	}
+    	
+    	PageSpec compiledPageSpec = readCompiled(file);
+    	if (compiledPageSpec != null) {
+    	    pageSpec = compiledPageSpec;
+    	    return compiledPageSpec;
+    	}
     	else {
     		processedFiles.add(absolutePath);
     		return read(new FileInputStream(file), absolutePath, file.getParent());
     	}
     }
 
+    /**
+     * Loads page spec from the compiled file next to spec file (see {@link CompiledPageSpecStorage})
+     * @return null in case there is no compiled file or it could not be used
+     */
+    private PageSpec readCompiled(File file) throws IOException {
+        if (GalenConfig.getConfig().getBooleanProperty("galen.specs.compiled", true)) {
+            File compiledFile = CompiledPageSpecStorage.compiledFileFor(file);
+            if (compiledFile.isFile()) {
+                return CompiledPageSpecStorage.load(compiledFile, this);
+            }
+        }
+        return null;
+    }
+
     public PageSpec read(InputStream inputStream) throws IOException {
         return read(inputStream, "<unknown location>", ".");
     }
@@ -83,6 +124,12 @@ public class PageSpecReader implements BashTemplateJsFunctions {
         int lineNumber = 1;
         try {
             while(line != null) {
+                if (line.contains("${")) {
+                    if (hasDeferredMultiObjects) {
+                        templatesAfterDeferredMultiObjects = true;
+                    }
+                    rememberTemplate(line);
+                }
                 lineProcessor.processLine(bashTemplateContext.process(line));
                 line = bufferedReader.readLine();
                 lineNumber++;
@@ -95,10 +142,84 @@ public class PageSpecReader implements BashTemplateJsFunctions {
         return lineProcessor.buildPageSpec();
     }
 
+    private void rememberTemplate(String line) {
+        if (BashTemplate.hasJavascript(line)) {
+            javascriptInTemplates = true;
+        }
+        for (String variable : BashTemplate.findVariables(line)) {
+            if (bashTemplateContext.getValue(variable) == null) {
+                templateVariables.put(variable, BashTemplate.readSystemVariable(variable));
+            }
+        }
+    }
+
     public Browser getBrowser() {
         return browser;
     }
 
+    /**
+     * @return absolute paths of all spec files that were read including the imported ones
+     */
+    public Set<String> getProcessedFiles() {
+        return processedFiles;
+    }
+
+    /**
+     * @return spec reader which is shared by all sections of all read spec files
+     */
+    public SpecReader getSpecReader() {
+        if (specReader == null) {
+            specReader = new SpecReader(browser);
+        }
+        return specReader;
+    }
+
+    /**
+     * Multi objects are fetched from browser at reading time so that they could be used in templates (e.g. with count function).
+     * Without browser or in case multi objects are deferred they are stored in page spec and fetched before validation
+     */
+    public void addMultiObject(PageSpec pageSpec, String objectName, Locator locator) {
+        if (browser != null && !multiObjectsDeferred) {
+            pageSpec.updateMultiObject(browser.getPage(), objectName, locator);
+        }
+        else {
+            pageSpec.addMultiObject(objectName, locator);
+            if (multiObjectsDeferred) {
+                hasDeferredMultiObjects = true;
+            }
+        }
+    }
+
+    public boolean isMultiObjectsDeferred() {
+        return multiObjectsDeferred;
+    }
+
+    public void setMultiObjectsDeferred(boolean multiObjectsDeferred) {
+        this.multiObjectsDeferred = multiObjectsDeferred;
+    }
+
+    /**
+     * @return true if page specs that were read with deferred multi objects may differ
+     * from the ones that would be read with multi objects fetched from browser
+     */
+    public boolean hasTemplatesAfterDeferredMultiObjects() {
+        return templatesAfterDeferredMultiObjects;
+    }
+
+    /**
+     * @return values of system properties which were used in templates of all read spec files
+     */
+    public Map<String, String> getTemplateVariables() {
+        return templateVariables;
+    }
+
+    /**
+     * @return true if templates of any read spec file contained javascript expressions
+     */
+    public boolean hasJavascriptInTemplates() {
+        return javascriptInTemplates;
+    }
+
     public void setBrowser(Browser browser) {
         this.browser = browser;
     }
@@ -106,15 +227,7 @@ public class PageSpecReader implements BashTemplateJsFunctions {
     @Override
     public int count(String regex) {
         String jRegex = regex.replace("*", ".*");
-        Pattern pattern = Pattern.compile(jRegex);
-        
-        int count = 0;
-        for (String name : pageSpec.getObjects().keySet()) {
-            if (pattern.matcher(name).matches()) {
-                count ++;
-            }
-        }
-        return count;
+        return pageSpec.findObjectNamesMatchingRegex(jRegex).size();
     }
     
     
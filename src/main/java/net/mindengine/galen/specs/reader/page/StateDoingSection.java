@@ -21,9 +21,11 @@ import java.io.IOException;
 
 import net.mindengine.galen.parser.MathParser;
 import net.mindengine.galen.parser.SyntaxException;
+import net.mindengine.galen.specs.Spec;
 import net.mindengine.galen.specs.page.ObjectSpecs;
 import net.mindengine.galen.specs.page.PageSection;
 import net.mindengine.galen.specs.reader.SpecReader;
+import net.mindengine.galen.validation.ValidationFactory;
 
 public class StateDoingSection extends State {
 
@@ -49,7 +51,7 @@ public class StateDoingSection extends State {
         public void processObject(String line) throws IOException {
             for (int i = 0; i < parameters.length; i++) {
                 String specText = convertParameterizedLine(line, parameters[i]);
-                objectSpecs[i].getSpecs().add(StateDoingSection.this.specReader.read(specText, getContextPath()));
+                addSpec(objectSpecs[i], StateDoingSection.this.specReader.read(specText, getContextPath()));
             }
         }
     }
@@ -58,7 +60,7 @@ public class StateDoingSection extends State {
         this.section = section;
         this.contextPath = contextPath;
         this.setPageSpecReader(pageSpecReader);
-        this.specReader = new SpecReader(pageSpecReader.getBrowser());
+        this.specReader = pageSpecReader.getSpecReader();
     }
 
     @Override
@@ -90,7 +92,7 @@ public class StateDoingSection extends State {
         }
         else {
             try {
-                currentObjectSpecs.getSpecs().add(specReader.read(line.trim()));
+                addSpec(currentObjectSpecs, specReader.read(line.trim()));
             }
             catch (SyntaxException exception) {
                 throw exception;
@@ -101,6 +103,10 @@ public class StateDoingSection extends State {
         }
     }
 
+    private static void addSpec(ObjectSpecs objectSpecs, Spec spec) {
+        objectSpecs.addSpec(spec, ValidationFactory.getValidation(spec));
+    }
+
     private void beginParameterizedObject(String line, String[] parameters) {
         String objectNamePattern = readObjectNameFromLine(line);
         
@@ -84,13 +84,7 @@ public class StateObjectDefinition extends State {
             throw new SyntaxException(UNKNOWN_LINE, "Incorrect object name: " + objectName);
         }
         else {
-            
-            if (pageSpecReader.getBrowser() != null) {
-                pageSpec.updateMultiObject(pageSpecReader.getBrowser().getPage(), objectName, locator);
-            }
-            else {
-                pageSpec.addMultiObject(objectName, locator);
-            }
+            pageSpecReader.addMultiObject(pageSpec, objectName, locator);
         }
     }
 
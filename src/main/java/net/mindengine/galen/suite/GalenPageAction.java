@@ -26,6 +26,14 @@ public abstract class GalenPageAction {
     
     public abstract List<ValidationError> execute(Browser browser, GalenPageTest pageTest, ValidationListener validationListener) throws Exception;
 
+    /**
+     * Tells whether the action could change the page so that all the data
+     * cached by browser for the current page state should be dropped after it
+     */
+    public boolean changesPageState() {
+        return true;
+    }
+
     public String getOriginalCommand() {
         return originalCommand;
     }
@@ -15,6 +15,8 @@
 ******************************************************************************/
 package net.mindengine.galen.suite.actions;
 
+import java.awt.Dimension;
+import java.io.File;
 import java.io.IOException;
 import java.util.LinkedList;
 import java.util.List;
@@ -24,10 +26,13 @@ import org.apache.commons.lang3.builder.HashCodeBuilder;
 import org.apache.commons.lang3.builder.ToStringBuilder;
 
 import net.mindengine.galen.browser.Browser;
+import net.mindengine.galen.config.GalenConfig;
 import net.mindengine.galen.page.Page;
+import net.mindengine.galen.page.snapshot.PageSnapshot;
+import net.mindengine.galen.page.snapshot.PageSnapshotStorage;
 import net.mindengine.galen.specs.page.PageSection;
 import net.mindengine.galen.specs.reader.page.PageSpec;
-import net.mindengine.galen.specs.reader.page.PageSpecReader;
+import net.mindengine.galen.specs.reader.page.PageSpecCache;
 import net.mindengine.galen.specs.reader.page.SectionFilter;
 import net.mindengine.galen.suite.GalenPageAction;
 import net.mindengine.galen.suite.GalenPageTest;
@@ -49,11 +54,26 @@ public class GalenPageActionCheck extends GalenPageAction {
         List<ValidationError> allErrors = new LinkedList<ValidationError>();
         
         Page page = browser.getPage();
-        PageSpecReader pageSpecReader = new PageSpecReader(browser);
         
+        List<File> specFiles = new LinkedList<File>();
         for (String specFile : specs) {
-            PageSpec spec = pageSpecReader.read(GalenUtils.findFile(specFile));
-            
+            specFiles.add(GalenUtils.findFile(specFile));
+        }
+        List<PageSpec> pageSpecs = PageSpecCache.get().read(specFiles, browser);
+        
+        if (!(page instanceof PageSnapshot)) {
+            String snapshotStore = GalenConfig.getConfig().readProperty("galen.page.snapshot.store");
+            if (snapshotStore != null && !snapshotStore.trim().isEmpty()) {
+                PageSnapshot snapshot = PageSnapshot.capture(page, pageSpecs, true);
+                PageSnapshotStorage.save(new File(snapshotStore.trim()), snapshotName(browser, pageTest), snapshot, browser.getUrl(), browser.getScreenSize());
+                page = snapshot;
+            }
+            else if (GalenConfig.getConfig().getBooleanProperty("galen.page.snapshot", false)) {
+                page = PageSnapshot.capture(page, pageSpecs);
+            }
+        }
+        
+        for (PageSpec spec : pageSpecs) {
             SectionFilter sectionFilter = new SectionFilter(includedTags, excludedTags);
             List<PageSection> pageSections = spec.findSections(includedTags, excludedTags);
             
@@ -68,6 +88,52 @@ public class GalenPageActionCheck extends GalenPageAction {
         return allErrors;
     }
 
+    @Override
+    public boolean changesPageState() {
+        return false;
+    }
+
+    /**
+     * Snapshot name contains the index of this action in page test and names of its spec files,
+     * so that different checks of the same page test don't override snapshots of each other
+     */
+    private String snapshotName(Browser browser, GalenPageTest pageTest) {
+        String name = pageTest != null && pageTest.getTitle() != null ? pageTest.getTitle() : browser.getUrl();
+        Dimension screenSize = browser.getScreenSize();
+        if (screenSize != null) {
+            name = name + " " + screenSize.width + "x" + screenSize.height;
+        }
+        
+        int actionIndex = actionIndex(pageTest);
+        if (actionIndex >= 0) {
+            name = name + " " + (actionIndex + 1);
+        }
+        
+        if (specs != null) {
+            for (String spec : specs) {
+                String specName = new File(spec).getName();
+                if (specName.endsWith(".spec")) {
+                    specName = specName.substring(0, specName.length() - 5);
+                }
+                name = name + " " + specName;
+            }
+        }
+        return PageSnapshotStorage.convertToFileName(name);
+    }
+
+    private int actionIndex(GalenPageTest pageTest) {
+        if (pageTest != null && pageTest.getActions() != null) {
+            int index = 0;
+            for (GalenPageAction action : pageTest.getActions()) {
+                if (action == this) {
+                    return index;
+                }
+                index++;
+            }
+        }
+        return -1;
+    }
+
     public GalenPageActionCheck withSpecs(List<String> specFilePaths) {
         this.setSpecs(specFilePaths);
         return this;
@@ -16,23 +16,40 @@
 package net.mindengine.galen.utils;
 
 import java.awt.Dimension;
-import java.awt.Graphics2D;
 import java.awt.image.BufferedImage;
 import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.net.URL;
+import java.util.List;
 
 import javax.imageio.ImageIO;
 
+import net.mindengine.galen.config.GalenConfig;
+import net.mindengine.galen.page.PageScreenshot;
+import net.mindengine.galen.page.TiledScreenshot;
+
 import org.openqa.selenium.JavascriptExecutor;
 import org.openqa.selenium.OutputType;
 import org.openqa.selenium.TakesScreenshot;
 import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
 
 public class GalenUtils {
 
     private static final String URL_REGEX = "[a-zA-Z0-9]+://.*";
+    private static final int SCREENSHOT_HEIGHT_TOLERANCE = 40;
+    private static final int SCROLL_SETTLE_MAX_CHECKS = 20;
+    private static final int DEFAULT_SCROLL_CHECK_DELAY = 100;
+    
+    private static final String SCROLL_POSITION_SCRIPT = "return Math.round(window.pageYOffset);";
+    
+    /*
+     * Scrolls to the given position and returns the actual scroll position together with the maximum one
+     */
+    private static final String SCROLL_SCRIPT = "window.scrollTo(0, arguments[0]);" +
+            "var maxScroll = Math.max(document.body.scrollHeight, document.documentElement.scrollHeight) - window.innerHeight;" +
+            "return [Math.round(window.pageYOffset), Math.max(0, Math.round(maxScroll))];";
     
     
     public static boolean isUrl(String url) {
@@ -71,57 +88,143 @@ public class GalenUtils {
     }
     
     
+    /**
+     * Makes a screenshot of whole page and waits until it is written to png file
+     * @param driver
+     * @return path to the png file
+     * @throws IOException
+     * @throws InterruptedException
+     * @see #makeFullPageScreenshot(WebDriver)
+     */
     public static String makeFullScreenshot(WebDriver driver) throws IOException, InterruptedException {
+        return makeFullPageScreenshot(driver).getFile().getAbsolutePath();
+    }
+    
+    /**
+     * Makes a screenshot of whole page. In case the viewport doesn't show the whole page it first tries
+     * to resize the window to the height of the page and take a single screenshot
+     * (unless "galen.browser.screenshots.fullPage.resize" is disabled).
+     * Otherwise it scrolls the page and assembles the screenshot from its parts in {@link TiledScreenshot}.
+     * The assembled screenshot is encoded to png in background once its file is requested
+     * @param driver
+     * @return the screenshot of whole page
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    public static PageScreenshot makeFullPageScreenshot(WebDriver driver) throws IOException, InterruptedException {
         byte[] bytes = ((TakesScreenshot)driver).getScreenshotAs(OutputType.BYTES);
-        BufferedImage image = ImageIO.read(new ByteArrayInputStream(bytes));
-        int capturedWidth = image.getWidth();
-        int capturedHeight = image.getHeight();
+        PageScreenshot screenshot = new PageScreenshot(bytes);
+        int capturedHeight = screenshot.getHeight();
         
-        long longScrollHeight = (Long)((JavascriptExecutor)driver).executeScript("return Math.max(" + 
+        int scrollHeight = getScrollHeight(driver);
+        
+        if (Math.abs(capturedHeight - scrollHeight) > SCREENSHOT_HEIGHT_TOLERANCE) {
+            if (GalenConfig.getConfig().getBooleanProperty("galen.browser.screenshots.fullPage.resize", true)) {
+                PageScreenshot singleShot = makeSingleShotScreenshot(driver, scrollHeight);
+                if (singleShot != null) {
+                    return singleShot;
+                }
+            }
+            
+            BufferedImage image = ImageIO.read(new ByteArrayInputStream(bytes));
+            return new PageScreenshot(stitchScreenshot(driver, image, image.getWidth(), capturedHeight, scrollHeight));
+        }
+        else {
+            return screenshot;
+        }
+    }
+
+    private static int getScrollHeight(WebDriver driver) {
+        return ((Number)((JavascriptExecutor)driver).executeScript("return Math.max(" + 
                 "document.body.scrollHeight, document.documentElement.scrollHeight," +
                 "document.body.offsetHeight, document.documentElement.offsetHeight," +
                 "document.body.clientHeight, document.documentElement.clientHeight);"
-            );
-        
-        int scrollHeight = (int)longScrollHeight;
-        
-        File file = File.createTempFile("screenshot", ".png");
-        
-        if (Math.abs(capturedHeight - scrollHeight) > 40) {
-            int scrollOffset = capturedHeight;
-            
-            int times = scrollHeight / capturedHeight;
-            int leftover = scrollHeight % capturedHeight;
-            
-            final BufferedImage tiledImage = new BufferedImage(capturedWidth, scrollHeight, BufferedImage.TYPE_INT_RGB);
-            Graphics2D g2dTile = tiledImage.createGraphics();
-            g2dTile.drawImage(image, 0,0, null);
+            )).intValue();
+    }
 
+    /**
+     * Temporarily resizes the window so that the whole page fits into viewport.
+     * Only the header of taken screenshot is read to check its height
+     * @return the screenshot or null if browser didn't allow the window to be resized enough
+     */
+    private static PageScreenshot makeSingleShotScreenshot(WebDriver driver, int scrollHeight) throws IOException {
+        org.openqa.selenium.Dimension originalSize = null;
+        try {
+            originalSize = driver.manage().window().getSize();
+            int viewportHeight = ((Number)((JavascriptExecutor)driver).executeScript("return window.innerHeight;")).intValue();
+            int chromeHeight = originalSize.getHeight() - viewportHeight;
+            
+            driver.manage().window().setSize(new org.openqa.selenium.Dimension(originalSize.getWidth(), scrollHeight + chromeHeight));
+            scrollVerticallyTo(driver, 0);
             
-            int scroll = 0;
-            for (int i = 0; i < times - 1; i++) {
-                scroll += scrollOffset;
-                scrollVerticallyTo(driver, scroll);
-                Thread.sleep(100);
-                BufferedImage nextImage = ImageIO.read(new ByteArrayInputStream(((TakesScreenshot)driver).getScreenshotAs(OutputType.BYTES)));
-                g2dTile.drawImage(nextImage, 0, (i+1) * capturedHeight, null);
+            PageScreenshot screenshot = new PageScreenshot(((TakesScreenshot)driver).getScreenshotAs(OutputType.BYTES));
+            if (screenshot.getHeight() >= scrollHeight - SCREENSHOT_HEIGHT_TOLERANCE && getScrollHeight(driver) <= screenshot.getHeight() + SCREENSHOT_HEIGHT_TOLERANCE) {
+                return screenshot;
             }
-            if (leftover > 0) {
-                scroll += scrollOffset;
-                scrollVerticallyTo(driver, scroll);
-                BufferedImage nextImage = ImageIO.read(new ByteArrayInputStream(((TakesScreenshot)driver).getScreenshotAs(OutputType.BYTES)));
-                BufferedImage lastPart = nextImage.getSubimage(0, nextImage.getHeight() - leftover, nextImage.getWidth(), leftover);
-                g2dTile.drawImage(lastPart, 0, scrollHeight - leftover, null);
+            return null;
+        }
+        catch (WebDriverException e) {
+            return null;
+        }
+        finally {
+            if (originalSize != null) {
+                driver.manage().window().setSize(originalSize);
             }
+        }
+    }
+
+    /**
+     * Assembles the screenshot in {@link TiledScreenshot} so that the whole page is never kept in java heap
+     */
+    private static TiledScreenshot stitchScreenshot(WebDriver driver, BufferedImage firstImage, int capturedWidth, int capturedHeight, int scrollHeight) throws IOException, InterruptedException {
+        TiledScreenshot tiledImage = new TiledScreenshot(capturedWidth, scrollHeight, false);
+        tiledImage.writeImage(firstImage, 0);
+        
+        int scroll = 0;
+        while (scroll + capturedHeight < scrollHeight) {
+            int actualScroll = scrollAndWait(driver, scroll + capturedHeight);
+            if (actualScroll <= scroll) {
+                break;
+            }
+            scroll = actualScroll;
             
-            scrollVerticallyTo(driver, 0);
-            
-            ImageIO.write(tiledImage, "png", file);
+            BufferedImage nextImage = ImageIO.read(new ByteArrayInputStream(((TakesScreenshot)driver).getScreenshotAs(OutputType.BYTES)));
+            tiledImage.writeImage(nextImage, scroll);
         }
-        else {
-            ImageIO.write(image, "png", file);
+        
+        scrollVerticallyTo(driver, 0);
+        return tiledImage;
+    }
+
+    /**
+     * Scrolls the page and returns as soon as the scroll position is settled.
+     * Usually the page is scrolled right away to the requested position (or to the bottom of page)
+     * so it takes a single javascript call without any delay. Otherwise (e.g. with smooth scrolling) the position
+     * is checked again after the delay configured with "galen.browser.screenshots.fullPage.scrollWait" (in milliseconds)
+     * until it stays the same for two checks in a row
+     * @return the actual scroll position which could be smaller than requested at the bottom of page
+     */
+    @SuppressWarnings("unchecked")
+    private static int scrollAndWait(WebDriver driver, int scroll) throws InterruptedException {
+        List<Number> scrollState = (List<Number>) ((JavascriptExecutor)driver).executeScript(SCROLL_SCRIPT, scroll);
+        int position = scrollState.get(0).intValue();
+        int maxPosition = scrollState.get(1).intValue();
+        if (position == Math.min(scroll, maxPosition)) {
+            return position;
+        }
+        
+        int checkDelay = GalenConfig.getConfig().getIntProperty("galen.browser.screenshots.fullPage.scrollWait", DEFAULT_SCROLL_CHECK_DELAY);
+        for (int i = 0; i < SCROLL_SETTLE_MAX_CHECKS; i++) {
+            if (checkDelay > 0) {
+                Thread.sleep(checkDelay);
+            }
+            int nextPosition = ((Number)((JavascriptExecutor)driver).executeScript(SCROLL_POSITION_SCRIPT)).intValue();
+            if (nextPosition == position) {
+                break;
+            }
+            position = nextPosition;
         }
-        return file.getAbsolutePath();
+        return position;
     }
 
     public static void scrollVerticallyTo(WebDriver driver, int scroll) {
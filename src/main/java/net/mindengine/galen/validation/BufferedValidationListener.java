@@ -0,0 +1,161 @@
+/*******************************************************************************
+* Copyright 2014 Ivan Shubin http://mindengine.net
+* 
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+* 
+*   http://www.apache.org/licenses/LICENSE-2.0
+* 
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+******************************************************************************/
+package net.mindengine.galen.validation;
+
+import java.util.LinkedList;
+import java.util.List;
+
+import net.mindengine.galen.runner.GalenPageRunner;
+import net.mindengine.galen.specs.Spec;
+import net.mindengine.galen.specs.page.PageSection;
+import net.mindengine.galen.suite.GalenPageAction;
+
+/**
+ * Records all validation events so that they could be passed to the real listener later in the same order.
+ * Used when objects are validated in parallel
+ * @author ishubin
+ *
+ */
+public class BufferedValidationListener implements ValidationListener {
+    
+    private final List<Event> events = new LinkedList<Event>();
+
+    @Override
+    public synchronized void onObject(final GalenPageRunner pageRunner, final PageValidation pageValidation, final String objectName) {
+        events.add(new Event(pageValidation) {
+            @Override
+            public void replay(ValidationListener listener, PageValidation pageValidation) {
+                listener.onObject(pageRunner, pageValidation, objectName);
+            }
+        });
+    }
+
+    @Override
+    public synchronized void onAfterObject(final GalenPageRunner pageRunner, final PageValidation pageValidation, final String objectName) {
+        events.add(new Event(pageValidation) {
+            @Override
+            public void replay(ValidationListener listener, PageValidation pageValidation) {
+                listener.onAfterObject(pageRunner, pageValidation, objectName);
+            }
+        });
+    }
+
+    @Override
+    public synchronized void onSpecError(final GalenPageRunner pageRunner, final PageValidation pageValidation, final String objectName, final Spec spec, final ValidationError error) {
+        events.add(new Event(pageValidation) {
+            @Override
+            public void replay(ValidationListener listener, PageValidation pageValidation) {
+                listener.onSpecError(pageRunner, pageValidation, objectName, spec, error);
+            }
+        });
+    }
+
+    @Override
+    public synchronized void onSpecSuccess(final GalenPageRunner pageRunner, final PageValidation pageValidation, final String objectName, final Spec spec) {
+        events.add(new Event(pageValidation) {
+            @Override
+            public void replay(ValidationListener listener, PageValidation pageValidation) {
+                listener.onSpecSuccess(pageRunner, pageValidation, objectName, spec);
+            }
+        });
+    }
+
+    @Override
+    public synchronized void onGlobalError(final GalenPageRunner pageRunner, final Exception e) {
+        events.add(new Event(null) {
+            @Override
+            public void replay(ValidationListener listener, PageValidation pageValidation) {
+                listener.onGlobalError(pageRunner, e);
+            }
+        });
+    }
+
+    @Override
+    public synchronized void onBeforePageAction(final GalenPageRunner pageRunner, final GalenPageAction action) {
+        events.add(new Event(null) {
+            @Override
+            public void replay(ValidationListener listener, PageValidation pageValidation) {
+                listener.onBeforePageAction(pageRunner, action);
+            }
+        });
+    }
+
+    @Override
+    public synchronized void onAfterPageAction(final GalenPageRunner pageRunner, final GalenPageAction action) {
+        events.add(new Event(null) {
+            @Override
+            public void replay(ValidationListener listener, PageValidation pageValidation) {
+                listener.onAfterPageAction(pageRunner, action);
+            }
+        });
+    }
+
+    @Override
+    public synchronized void onBeforeSection(final GalenPageRunner pageRunner, final PageValidation pageValidation, final PageSection pageSection) {
+        events.add(new Event(pageValidation) {
+            @Override
+            public void replay(ValidationListener listener, PageValidation pageValidation) {
+                listener.onBeforeSection(pageRunner, pageValidation, pageSection);
+            }
+        });
+    }
+
+    @Override
+    public synchronized void onAfterSection(final GalenPageRunner pageRunner, final PageValidation pageValidation, final PageSection pageSection) {
+        events.add(new Event(pageValidation) {
+            @Override
+            public void replay(ValidationListener listener, PageValidation pageValidation) {
+                listener.onAfterSection(pageRunner, pageValidation, pageSection);
+            }
+        });
+    }
+    
+    /**
+     * Passes all recorded events to the given listener. In case listener fails on some of the events
+     * the rest of events are still passed to it and the first exception is thrown afterwards
+     * @param listener
+     * @param recordedValidation - page validation which was used while recording events
+     * @param originalValidation - page validation which should be passed to listener instead of recorded one
+     */
+    public synchronized void replay(ValidationListener listener, PageValidation recordedValidation, PageValidation originalValidation) {
+        RuntimeException listenerException = null;
+        for (Event event : events) {
+            PageValidation pageValidation = event.pageValidation == recordedValidation ? originalValidation : event.pageValidation;
+            try {
+                event.replay(listener, pageValidation);
+            }
+            catch (RuntimeException e) {
+                if (listenerException == null) {
+                    listenerException = e;
+                }
+            }
+        }
+        
+        if (listenerException != null) {
+            throw listenerException;
+        }
+    }
+    
+    private static abstract class Event {
+        private final PageValidation pageValidation;
+        
+        public Event(PageValidation pageValidation) {
+            this.pageValidation = pageValidation;
+        }
+        
+        public abstract void replay(ValidationListener listener, PageValidation pageValidation);
+    }
+}
@@ -16,16 +16,22 @@
 package net.mindengine.galen.validation;
 
 import static java.lang.String.format;
+import static java.util.Arrays.asList;
 import static net.mindengine.galen.suite.reader.Line.UNKNOWN_LINE;
 
-import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import net.mindengine.galen.browser.Browser;
 import net.mindengine.galen.page.Page;
 import net.mindengine.galen.page.PageElement;
+import net.mindengine.galen.page.snapshot.ObjectNotCapturedException;
 import net.mindengine.galen.parser.SyntaxException;
 import net.mindengine.galen.specs.Range;
 import net.mindengine.galen.specs.Spec;
+import net.mindengine.galen.specs.SpecComponent;
+import net.mindengine.galen.specs.ValuePath;
 import net.mindengine.galen.specs.page.Locator;
 import net.mindengine.galen.specs.reader.page.PageSpec;
 import net.mindengine.galen.specs.reader.page.SectionFilter;
@@ -37,6 +43,9 @@ public class PageValidation {
     private PageSpec pageSpec;
     private ValidationListener validationListener;
     private SectionFilter sectionFilter;
+    private Map<String, Integer> percentageBaseValues = new ConcurrentHashMap<String, Integer>();
+    private Map<String, CheckResult> checkResults = new ConcurrentHashMap<String, CheckResult>();
+    private Map<String, CheckResult> availabilityResults = new ConcurrentHashMap<String, CheckResult>();
 
     public PageValidation(Browser browser, Page page, PageSpec pageSpec, ValidationListener validationListener, SectionFilter sectionFilter) {
         this.setBrowser(browser);
@@ -46,6 +55,18 @@ public class PageValidation {
         this.setSectionFilter(sectionFilter);
     }
 
+    /**
+     * Creates a validation of the same page that reports to the given listener
+     * and shares the already resolved values with this one
+     */
+    PageValidation createWorker(ValidationListener listener) {
+        PageValidation worker = new PageValidation(browser, page, pageSpec, listener, sectionFilter);
+        worker.percentageBaseValues = percentageBaseValues;
+        worker.checkResults = checkResults;
+        worker.availabilityResults = availabilityResults;
+        return worker;
+    }
+
     public Page getPage() {
         return page;
     }
@@ -54,16 +75,75 @@ public class PageValidation {
         this.page = page;
     }
 
-    @SuppressWarnings({ "rawtypes", "unchecked" })
+    /**
+     * Checks the given spec of the object. The outcome is remembered for the lifetime of this validation
+     * so that the same spec which is used both in conditions and in the body of conditional blocks
+     * is only validated once. Component specs are never remembered as they report their own child specs.
+     */
     public ValidationError check(String objectName, Spec spec) {
-        SpecValidation specValidation = ValidationFactory.getValidation(spec, this);
+        return check(objectName, spec, null);
+    }
+    
+    /**
+     * Checks the given spec of the object with the validation which was resolved when the spec was read
+     * @param specValidation validation of the spec or null in case it should be looked up in {@link ValidationFactory}
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    public ValidationError check(String objectName, Spec spec, SpecValidation<? extends Spec> specValidation) {
+        String resultKey = checkResultKey(objectName, spec);
+        if (resultKey != null) {
+            CheckResult cachedResult = checkResults.get(resultKey);
+            if (cachedResult != null) {
+                return cachedResult.error;
+            }
+        }
+        
+        SpecValidation validation = specValidation != null ? specValidation : ValidationFactory.getValidation(spec);
+        ValidationError error;
         try {
-            specValidation.check(this, objectName, spec);
-            return null;
+            error = findRequiredObjectsError(validation.getRequiredObjects(objectName, spec));
+            if (error == null) {
+                error = validation.validate(this, objectName, spec);
+            }
+        }
+        catch (ObjectNotCapturedException exception) {
+            error = new ValidationError(null, asList(exception.getMessage()));
         }
-        catch (ValidationErrorException ex) {
-            return new ValidationError(ex.getErrorAreas(), ex.getErrorMessages());
+        
+        if (resultKey != null) {
+            checkResults.put(resultKey, new CheckResult(error));
         }
+        return error;
+    }
+
+    private ValidationError findRequiredObjectsError(List<String> requiredObjects) {
+        for (String requiredObject : requiredObjects) {
+            ValidationError error = getAvailabilityError(requiredObject);
+            if (error != null) {
+                return error;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Resolves availability of the object once for the lifetime of this validation
+     * @return error in case object is not defined in page spec, absent or not visible. Otherwise null
+     */
+    public ValidationError getAvailabilityError(String objectName) {
+        CheckResult availability = availabilityResults.get(objectName);
+        if (availability == null) {
+            availability = new CheckResult(SpecValidation.availabilityError(findPageElement(objectName), objectName));
+            availabilityResults.put(objectName, availability);
+        }
+        return availability.error;
+    }
+
+    private String checkResultKey(String objectName, Spec spec) {
+        if (spec.getOriginalText() == null || spec instanceof SpecComponent) {
+            return null;
+        }
+        return objectName + "\n" + spec.getClass().getName() + "\n" + spec.getOriginalText();
     }
 
     public PageSpec getPageSpec() {
@@ -85,34 +165,40 @@ public class PageValidation {
     }
     
     public Range convertRangeFromPercentageToPixels(Range range) {
-        String valuePath = range.getPercentageOfValue();
-        int index = valuePath.indexOf("/");
-        if (index > 0 && index < valuePath.length() - 1) {
-            String objectName = valuePath.substring(0, index);
-            String fieldPath = valuePath.substring(index + 1);
-            
-            Locator locator = pageSpec.getObjectLocator(objectName);
-            PageElement pageElement = findPageElementOnPage(objectName, locator);
-            
-            if (pageElement != null) {
-                Object objectValue = getObjectValue(pageElement, fieldPath);
-                int value = convertToInt(objectValue);
-                
-                
-                Double valueA = range.getFrom();
-                Double valueB = range.getTo();
-                if (valueA != null) {
-                    valueA = valueA * value / 100.0;
-                }
-                if (valueB != null) {
-                    valueB = valueB * value / 100.0;
-                }
-                
-                return new Range(valueA, valueB).withType(range.getRangeType());
-            }
-            else throw new SyntaxException(UNKNOWN_LINE, format("Locator for object \"%s\" is not specified", objectName));
+        int value = getPercentageBaseValue(range.getPercentageOfPath());
+        
+        Double valueA = range.getFrom();
+        Double valueB = range.getTo();
+        if (valueA != null) {
+            valueA = valueA * value / 100.0;
         }
-        else throw new SyntaxException(UNKNOWN_LINE, format("Value path is incorrect %s", valuePath));
+        if (valueB != null) {
+            valueB = valueB * value / 100.0;
+        }
+        
+        return new Range(valueA, valueB).withType(range.getRangeType());
+    }
+
+    /**
+     * Resolves the value the percentage is taken from. Values are cached for the lifetime
+     * of this page validation, as the page is not expected to change while it is checked.
+     */
+    private int getPercentageBaseValue(ValuePath valuePath) {
+        Integer cachedValue = percentageBaseValues.get(valuePath.getPath());
+        if (cachedValue != null) {
+            return cachedValue;
+        }
+        
+        String objectName = valuePath.getObjectName();
+        Locator locator = pageSpec.getObjectLocator(objectName);
+        PageElement pageElement = findPageElementOnPage(objectName, locator);
+        
+        if (pageElement != null) {
+            int value = convertToInt(valuePath.getValue(pageElement));
+            percentageBaseValues.put(valuePath.getPath(), value);
+            return value;
+        }
+        else throw new SyntaxException(UNKNOWN_LINE, format("Locator for object \"%s\" is not specified", objectName));
     }
 
     private PageElement findPageElementOnPage(String objectName, Locator locator) {
@@ -141,40 +227,6 @@ public class PageValidation {
         }
     }
 
-    private Object getObjectValue(Object object, String fieldPath) {
-        int index = fieldPath.indexOf("/");
-        if (index > 0 && index < fieldPath.length() - 1) {
-            
-            String fieldName = fieldPath.substring(0, index);
-            String leftOverPath = fieldPath.substring(index + 1);
-            if (leftOverPath.isEmpty()) {
-                throw new SyntaxException(UNKNOWN_LINE, format("Cannot read path %s", fieldPath));
-            }
-            
-            Object field = getField(object, fieldName);
-            if (field == null) {
-                throw new NullPointerException(format("\"%s\" returned null", fieldName));
-            }
-            return getObjectValue(field, leftOverPath);
-        }
-        else {
-            return getField(object, fieldPath);
-        }
-    }
-
-    private Object getField(Object object, String fieldName) {
-        try {
-            Method getterMethod = object.getClass().getMethod(getterForField(fieldName));
-            return getterMethod.invoke(object);
-        } catch (Exception e) {
-            throw new SyntaxException(UNKNOWN_LINE, format("Cannot read field: \"%s\"", fieldName));
-        }
-    }
-
-    private String getterForField(String fieldName) {
-        return "get" + fieldName.substring(0, 1).toUpperCase() + fieldName.substring(1);
-    }
-
     public Range convertRange(Range range) {
         if (range != null) {
             if (range.isPercentage()) {
@@ -208,4 +260,12 @@ public class PageValidation {
         this.browser = browser;
     }
 
+    private static class CheckResult {
+        private final ValidationError error;
+
+        public CheckResult(ValidationError error) {
+            this.error = error;
+        }
+    }
+
 }
@@ -15,12 +15,24 @@
 ******************************************************************************/
 package net.mindengine.galen.validation;
 
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.regex.Pattern;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import net.mindengine.galen.config.GalenConfig;
+import net.mindengine.galen.page.Page;
+import net.mindengine.galen.page.selenium.SeleniumPage;
+import net.mindengine.galen.page.snapshot.PageSnapshot;
 import net.mindengine.galen.runner.GalenPageRunner;
 import net.mindengine.galen.specs.Spec;
+import net.mindengine.galen.specs.SpecComponent;
 import net.mindengine.galen.specs.page.ConditionalBlock;
 import net.mindengine.galen.specs.page.ConditionalBlockStatement;
 import net.mindengine.galen.specs.page.ObjectSpecs;
@@ -31,7 +43,9 @@ public class SectionValidation {
     private static final GalenPageRunner UNKNOWN_PAGE_RUNNER = null;
     private static final List<ValidationError> EMPTY_ERRORS = new LinkedList<ValidationError>();
     private static final boolean SHOULD_REPORT = true;
-    private static final boolean SHOULD_NOT_REPORT = false;
+    private static ExecutorService validationExecutor;
+    private static final ThreadLocal<Boolean> insideValidationWorker = new ThreadLocal<Boolean>();
+    
     private List<PageSection> pageSections;
     private PageValidation pageValidation;
     private ValidationListener validationListener;
@@ -43,9 +57,14 @@ public class SectionValidation {
     }
 
     public List<ValidationError> check() {
+        Page page = pageValidation.getPage();
         
         //Fetching all multi objects from page before validation
-        pageValidation.getPageSpec().updateMultiObjects(pageValidation.getPage());
+        pageValidation.getPageSpec().updateMultiObjects(page);
+        
+        if (page instanceof SeleniumPage && GalenConfig.getConfig().getBooleanProperty("galen.browser.page.prefetch", false)) {
+            ((SeleniumPage) page).prefetchObjects(pageValidation.getPageSpec().getObjects());
+        }
         
         List<ValidationError> errors = new LinkedList<ValidationError>();
         
@@ -84,6 +103,10 @@ public class SectionValidation {
     }
 
     private List<ValidationError> checkObjects(List<ObjectSpecs> objects, boolean shouldReport) {
+        if (shouldCheckInParallel(objects)) {
+            return checkObjectsInParallel(objects, shouldReport);
+        }
+        
         List<ValidationError> errors = new LinkedList<ValidationError>();
         for (ObjectSpecs object : objects) {
             List<String> allObjectNames = findAllObjectNames(object.getObjectName());
@@ -92,7 +115,7 @@ public class SectionValidation {
                     tellOnObject(objectName);
                 }
                 
-                errors.addAll(checkObject(objectName, object.getSpecs(), shouldReport));
+                errors.addAll(checkObject(pageValidation, validationListener, objectName, object, shouldReport));
                 
                 if (shouldReport) {
                     tellOnAfterObject(objectName);
@@ -102,6 +125,163 @@ public class SectionValidation {
         return errors;
     }
 
+    /**
+     * Only page snapshots are safe to be used from different threads.
+     * Validations which are started inside of worker threads are always run sequentially
+     */
+    private boolean shouldCheckInParallel(List<ObjectSpecs> objects) {
+        return getValidationThreads() > 1 
+                && !Boolean.TRUE.equals(insideValidationWorker.get())
+                && pageValidation.getPage() instanceof PageSnapshot
+                && !objects.isEmpty();
+    }
+
+    /**
+     * Checks each object in a separate task. All listener events of each object are buffered
+     * and passed to the listener in the same order as they would be during sequential validation.
+     * Objects with component specs are checked in the current thread when their turn comes
+     * as component validation works with the origin page of snapshot
+     */
+    private List<ValidationError> checkObjectsInParallel(List<ObjectSpecs> objects, final boolean shouldReport) {
+        List<String> objectNames = new LinkedList<String>();
+        List<ObjectSpecs> objectSpecs = new LinkedList<ObjectSpecs>();
+        List<Future<ObjectValidationResult>> futures = new LinkedList<Future<ObjectValidationResult>>();
+        
+        ExecutorService executor = getValidationExecutor();
+        for (final ObjectSpecs object : objects) {
+            boolean hasComponents = hasComponentSpecs(object.getSpecs());
+            for (final String objectName : findAllObjectNames(object.getObjectName())) {
+                objectNames.add(objectName);
+                objectSpecs.add(object);
+                if (hasComponents) {
+                    futures.add(null);
+                    continue;
+                }
+                futures.add(executor.submit(new Callable<ObjectValidationResult>() {
+                    @Override
+                    public ObjectValidationResult call() throws Exception {
+                        insideValidationWorker.set(true);
+                        try {
+                            BufferedValidationListener bufferedListener = new BufferedValidationListener();
+                            PageValidation workerValidation = pageValidation.createWorker(bufferedListener);
+                            
+                            List<ValidationError> errors = checkObject(workerValidation, bufferedListener, objectName, object, shouldReport);
+                            return new ObjectValidationResult(errors, bufferedListener, workerValidation);
+                        }
+                        finally {
+                            insideValidationWorker.remove();
+                        }
+                    }
+                }));
+            }
+        }
+        
+        List<ValidationError> errors = new LinkedList<ValidationError>();
+        Iterator<String> objectNamesIterator = objectNames.iterator();
+        Iterator<ObjectSpecs> objectSpecsIterator = objectSpecs.iterator();
+        for (Future<ObjectValidationResult> future : futures) {
+            String objectName = objectNamesIterator.next();
+            ObjectSpecs object = objectSpecsIterator.next();
+            
+            if (future == null) {
+                if (shouldReport) {
+                    tellOnObject(objectName);
+                }
+                errors.addAll(checkObjectWithOriginPage(objectName, object, shouldReport));
+                if (shouldReport) {
+                    tellOnAfterObject(objectName);
+                }
+                continue;
+            }
+            
+            ObjectValidationResult result = waitForResult(future);
+            if (shouldReport) {
+                tellOnObject(objectName);
+                if (validationListener != null) {
+                    result.bufferedListener.replay(validationListener, result.workerValidation, pageValidation);
+                }
+                tellOnAfterObject(objectName);
+            }
+            errors.addAll(result.errors);
+        }
+        return errors;
+    }
+
+    private boolean hasComponentSpecs(List<Spec> specs) {
+        for (Spec spec : specs) {
+            if (spec instanceof SpecComponent) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Keeps the origin page of snapshot locked for the whole check
+     * so that workers don't use the same browser while component specs are validated
+     */
+    private List<ValidationError> checkObjectWithOriginPage(String objectName, ObjectSpecs object, boolean shouldReport) {
+        Page originPage = ((PageSnapshot) pageValidation.getPage()).getOriginPage();
+        if (originPage != null) {
+            synchronized (originPage) {
+                return checkObject(pageValidation, validationListener, objectName, object, shouldReport);
+            }
+        }
+        else {
+            return checkObject(pageValidation, validationListener, objectName, object, shouldReport);
+        }
+    }
+
+    private ObjectValidationResult waitForResult(Future<ObjectValidationResult> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for validation", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            else throw new RuntimeException(cause.getMessage(), cause);
+        }
+    }
+
+    private static int getValidationThreads() {
+        return GalenConfig.getConfig().getIntProperty("galen.validation.threads", 1, 1, 256);
+    }
+
+    private static synchronized ExecutorService getValidationExecutor() {
+        if (validationExecutor == null) {
+            validationExecutor = Executors.newFixedThreadPool(getValidationThreads(), new ThreadFactory() {
+                private final AtomicInteger counter = new AtomicInteger();
+                
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "galen-validation-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return validationExecutor;
+    }
+    
+    private static class ObjectValidationResult {
+        private final List<ValidationError> errors;
+        private final BufferedValidationListener bufferedListener;
+        private final PageValidation workerValidation;
+        
+        public ObjectValidationResult(List<ValidationError> errors, BufferedValidationListener bufferedListener, PageValidation workerValidation) {
+            this.errors = errors;
+            this.bufferedListener = bufferedListener;
+            this.workerValidation = workerValidation;
+        }
+    }
+
     private List<ValidationError> checkConditionalBlock(ConditionalBlock block) {
         if (oneOfConditionsApplies(block.getStatements())) {
             return checkObjects(block.getBodyObjects());
@@ -116,11 +296,12 @@ public class SectionValidation {
         return checkObjects(bodyObjects, SHOULD_REPORT);
     }
 
+    /**
+     * Statements are evaluated one by one until the first of them applies
+     */
     private boolean oneOfConditionsApplies(List<ConditionalBlockStatement> statements) {
         for (ConditionalBlockStatement statement : statements) {
-            List<ValidationError> errors = checkObjectsSilently(statement.getObjects());
-            
-            boolean statementStatus =  (errors == null || errors.size() == 0);
+            boolean statementStatus = allObjectsPassSilently(statement.getObjects());
             if (statement.isInverted()) {
                 statementStatus = !statementStatus;
             }
@@ -132,8 +313,21 @@ public class SectionValidation {
         return false;
     }
 
-    private List<ValidationError> checkObjectsSilently(List<ObjectSpecs> objects) {
-        return checkObjects(objects, SHOULD_NOT_REPORT);
+    /**
+     * Checks objects without reporting and stops at the first failed spec
+     */
+    private boolean allObjectsPassSilently(List<ObjectSpecs> objects) {
+        for (ObjectSpecs object : objects) {
+            for (String objectName : findAllObjectNames(object.getObjectName())) {
+                Iterator<SpecValidation<? extends Spec>> validations = validationsIterator(object);
+                for (Spec spec : object.getSpecs()) {
+                    if (pageValidation.check(objectName, spec, nextValidation(validations)) != null) {
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
     }
 
     
@@ -157,17 +351,7 @@ public class SectionValidation {
     }
 
     private List<String> fetchUsingRegex(String simpleRegex) {
-        String regex = simpleRegex.replace("*", "[a-zA-Z0-9_]+");
-        Pattern pattern = Pattern.compile(regex);
-        
-        List<String> objectNames = new LinkedList<String>();
-        for (String objectName : pageValidation.getPageSpec().getObjects().keySet()) {
-            if (pattern.matcher(objectName).matches()) {
-                objectNames.add(objectName);
-            }
-        }
-        
-        return objectNames;
+        return pageValidation.getPageSpec().findObjectNamesMatchingRegex(simpleRegex.replace("*", "[a-zA-Z0-9_]+"));
     }
 
     private boolean isRegularExpression(String name) {
@@ -199,25 +383,44 @@ public class SectionValidation {
         }
     }
 
-    private List<ValidationError> checkObject(String objectName, List<Spec> specs, boolean shouldReport) {
+    private List<ValidationError> checkObject(PageValidation pageValidation, ValidationListener validationListener, String objectName, ObjectSpecs object, boolean shouldReport) {
         List<ValidationError> errors = new LinkedList<ValidationError>();
-        for (Spec spec : specs) {
+        Iterator<SpecValidation<? extends Spec>> validations = validationsIterator(object);
+        for (Spec spec : object.getSpecs()) {
             
-            ValidationError error = pageValidation.check(objectName, spec);
+            ValidationError error = pageValidation.check(objectName, spec, nextValidation(validations));
             if (error != null) {
                 errors.add(error);
                 if (shouldReport) {
-                    tellOnSpecError(pageValidation, objectName, spec, error);
+                    tellOnSpecError(validationListener, pageValidation, objectName, spec, error);
                 }
             }
             else if (shouldReport) {
-                tellOnSpecSuccess(pageValidation, objectName, spec);
+                tellOnSpecSuccess(validationListener, pageValidation, objectName, spec);
             }
         }
         return errors;
     }
 
-    private void tellOnSpecError(PageValidation pageValidation, String objectName, Spec spec, ValidationError error) {
+    /**
+     * @return iterator over validations which were resolved when specs were read or null in case they are not known
+     */
+    private static Iterator<SpecValidation<? extends Spec>> validationsIterator(ObjectSpecs object) {
+        List<SpecValidation<? extends Spec>> validations = object.getValidations();
+        if (validations != null) {
+            return validations.iterator();
+        }
+        return null;
+    }
+
+    private static SpecValidation<? extends Spec> nextValidation(Iterator<SpecValidation<? extends Spec>> validations) {
+        if (validations != null) {
+            return validations.next();
+        }
+        return null;
+    }
+
+    private void tellOnSpecError(ValidationListener validationListener, PageValidation pageValidation, String objectName, Spec spec, ValidationError error) {
         try {
             if (validationListener != null) {
                 validationListener.onSpecError(UNKNOWN_PAGE_RUNNER, pageValidation, objectName, spec, error);
@@ -228,7 +431,7 @@ public class SectionValidation {
         }
     }
 
-    private void tellOnSpecSuccess(PageValidation pageValidation, String objectName, Spec spec) {
+    private void tellOnSpecSuccess(ValidationListener validationListener, PageValidation pageValidation, String objectName, Spec spec) {
         try {
             if (validationListener != null) {
                 validationListener.onSpecSuccess(UNKNOWN_PAGE_RUNNER, pageValidation, objectName, spec);
@@ -17,6 +17,7 @@ package net.mindengine.galen.validation;
 
 import static java.lang.String.format;
 
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -30,6 +31,7 @@ public abstract class SpecValidation<T extends Spec> {
     protected static final String OBJECT_WITH_NAME_S_IS_NOT_DEFINED_IN_PAGE_SPEC = "Cannot find locator for \"%s\" in page spec";
     protected static final String OBJECT_S_IS_ABSENT_ON_PAGE = "\"%s\" is absent on page";
     protected static final String OBJECT_S_IS_NOT_VISIBLE_ON_PAGE = "\"%s\" is not visible on page";
+    private static final List<String> NO_REQUIRED_OBJECTS = Collections.emptyList();
 
     /**
      * Checks if object satisfies the specified spec
@@ -39,19 +41,61 @@ public abstract class SpecValidation<T extends Spec> {
      */
     public abstract void check(PageValidation pageValidation, String objectName, T spec) throws ValidationErrorException;
     
+    /**
+     * Checks if object satisfies the specified spec without throwing exceptions.
+     * Validations that are used a lot (e.g. in conditional blocks) should override it
+     * so that passing specs don't allocate anything
+     * @param pageValidation
+     * @param objectName
+     * @param spec
+     * @return validation error or null if object satisfies the spec
+     */
+    public ValidationError validate(PageValidation pageValidation, String objectName, T spec) {
+        try {
+            check(pageValidation, objectName, spec);
+            return null;
+        }
+        catch (ValidationErrorException ex) {
+            return new ValidationError(ex.getErrorAreas(), ex.getErrorMessages());
+        }
+    }
     
+    /**
+     * @return names of objects that have to be available on page for the spec to be checked,
+     * in the same order in which their availability is verified by the check.
+     * A spec of an unavailable object fails with the availability error without being checked
+     */
+    public List<String> getRequiredObjects(String objectName, T spec) {
+        return NO_REQUIRED_OBJECTS;
+    }
     
     protected void checkAvailability(PageElement object, String objectName) throws ValidationErrorException {
+        ValidationError error = availabilityError(object, objectName);
+        if (error != null) {
+            throw new ValidationErrorException(error.getErrorAreas(), error.getMessages());
+        }
+    }
+    
+    /**
+     * @return error in case object is not defined in page spec, absent or not visible. Otherwise null
+     */
+    protected static ValidationError availabilityError(PageElement object, String objectName) {
         if (object == null) {
-            throw new ValidationErrorException(format(OBJECT_WITH_NAME_S_IS_NOT_DEFINED_IN_PAGE_SPEC, objectName));
+            return errorMessage(format(OBJECT_WITH_NAME_S_IS_NOT_DEFINED_IN_PAGE_SPEC, objectName));
         }
         if (!object.isPresent()) {
-        	throw new ValidationErrorException(format(OBJECT_S_IS_ABSENT_ON_PAGE, objectName));
+            return errorMessage(format(OBJECT_S_IS_ABSENT_ON_PAGE, objectName));
         }
         else if (!object.isVisible()) {
-        	throw new ValidationErrorException((format(OBJECT_S_IS_NOT_VISIBLE_ON_PAGE, objectName)));
+            return errorMessage(format(OBJECT_S_IS_NOT_VISIBLE_ON_PAGE, objectName));
         }
-        
+        return null;
+    }
+    
+    protected static ValidationError errorMessage(String message) {
+        List<String> messages = new LinkedList<String>();
+        messages.add(message);
+        return new ValidationError(null, messages);
     }
     
     /**
@@ -89,5 +89,14 @@ public class ValidationErrorException extends Exception {
         setErrorMessages(messages);
         return this;
     }
+    
+    /**
+     * Validation errors are expected results of checks and their stack trace is never used,
+     * so it is not collected to make failing specs cheap
+     */
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
 
 }
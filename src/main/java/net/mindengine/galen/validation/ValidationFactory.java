@@ -15,7 +15,7 @@
 ******************************************************************************/
 package net.mindengine.galen.validation;
 
-import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Map;
 
 import net.mindengine.galen.specs.Spec;
@@ -53,19 +53,20 @@ import net.mindengine.galen.validation.specs.SpecValidationWidth;
 
 public class ValidationFactory {
     
+    /**
+     * Spec classes are compared by identity. The map is filled only once when the factory is created
+     * so it is safe to read it from different threads
+     */
     @SuppressWarnings("rawtypes")
-    private Map<Class<? extends Spec>, SpecValidation> validations = new HashMap<Class<? extends Spec>, SpecValidation>();
+    private final Map<Class<? extends Spec>, SpecValidation> validations = new IdentityHashMap<Class<? extends Spec>, SpecValidation>();
     
-    private static ValidationFactory _instance = null;
+    private static final ValidationFactory _instance = new ValidationFactory();
     
     private ValidationFactory() {
         initValidations();
     }
     
-    public synchronized static ValidationFactory get() {
-        if (_instance == null) {
-            _instance = new ValidationFactory();
-        }
+    public static ValidationFactory get() {
         return _instance;
     }
     
@@ -88,9 +89,9 @@ public class ValidationFactory {
         validations.put(SpecColorScheme.class, new SpecValidationColorScheme());
     }
 
-    @SuppressWarnings({ "unchecked", "rawtypes" })
-    public static SpecValidation<? extends Spec> getValidation(Spec spec, PageValidation pageValidation) {
-        SpecValidation specValidation = ValidationFactory.get().validations.get(spec.getClass());
+    @SuppressWarnings({ "rawtypes" })
+    public static SpecValidation<? extends Spec> getValidation(Spec spec) {
+        SpecValidation specValidation = _instance.validations.get(spec.getClass());
         if (specValidation == null) {
             throw new RuntimeException("There is no known validation for spec " + spec.getClass());
         }
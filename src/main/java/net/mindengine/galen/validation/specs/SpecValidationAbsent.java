@@ -16,26 +16,42 @@
 package net.mindengine.galen.validation.specs;
 
 import static java.lang.String.format;
+
+import java.util.LinkedList;
+import java.util.List;
+
 import net.mindengine.galen.page.PageElement;
 import net.mindengine.galen.specs.SpecAbsent;
 import net.mindengine.galen.validation.ErrorArea;
 import net.mindengine.galen.validation.PageValidation;
 import net.mindengine.galen.validation.SpecValidation;
+import net.mindengine.galen.validation.ValidationError;
 import net.mindengine.galen.validation.ValidationErrorException;
 
 public class SpecValidationAbsent extends SpecValidation<SpecAbsent>{
 
     @Override
     public void check(PageValidation pageValidation, String objectName, SpecAbsent spec) throws ValidationErrorException {
+        ValidationError error = validate(pageValidation, objectName, spec);
+        if (error != null) {
+            throw new ValidationErrorException(error.getErrorAreas(), error.getMessages());
+        }
+    }
+    
+    @Override
+    public ValidationError validate(PageValidation pageValidation, String objectName, SpecAbsent spec) {
         PageElement mainObject = pageValidation.findPageElement(objectName);
         if (mainObject == null) {
-            throw new ValidationErrorException(String.format(OBJECT_WITH_NAME_S_IS_NOT_DEFINED_IN_PAGE_SPEC, objectName));
+            return errorMessage(String.format(OBJECT_WITH_NAME_S_IS_NOT_DEFINED_IN_PAGE_SPEC, objectName));
         }
         else if (mainObject.isPresent() && mainObject.isVisible()) {
-            throw new ValidationErrorException()
-                .withErrorArea(new ErrorArea(mainObject.getArea(), objectName))
-                .withMessage(format("\"%s\" is not absent on page", objectName));
+            List<ErrorArea> errorAreas = new LinkedList<ErrorArea>();
+            errorAreas.add(new ErrorArea(mainObject.getArea(), objectName));
+            List<String> messages = new LinkedList<String>();
+            messages.add(format("\"%s\" is not absent on page", objectName));
+            return new ValidationError(errorAreas, messages);
         }
+        return null;
     }
 
 }
@@ -16,6 +16,7 @@
 package net.mindengine.galen.validation.specs;
 
 import java.util.Arrays;
+import java.util.List;
 
 import net.mindengine.galen.page.PageElement;
 import net.mindengine.galen.specs.SpecAligned;
@@ -26,6 +27,11 @@ import net.mindengine.galen.validation.ValidationErrorException;
 
 public abstract class SpecValidationAligned<T extends SpecAligned> extends SpecValidation<T> {
 
+    @Override
+    public List<String> getRequiredObjects(String objectName, T spec) {
+        return Arrays.asList(objectName, spec.getObject());
+    }
+    
     @Override
     public void check(PageValidation pageValidation, String objectName, T spec) throws ValidationErrorException {
         PageElement mainObject = pageValidation.findPageElement(objectName);
@@ -16,6 +16,7 @@
 package net.mindengine.galen.validation.specs;
 
 import java.util.Arrays;
+import java.util.List;
 
 import net.mindengine.galen.page.PageElement;
 import net.mindengine.galen.page.Rect;
@@ -27,6 +28,11 @@ import net.mindengine.galen.validation.ValidationErrorException;
 
 public class SpecValidationCentered extends SpecValidation<SpecCentered> {
 
+    @Override
+    public List<String> getRequiredObjects(String objectName, SpecCentered spec) {
+        return Arrays.asList(objectName, spec.getObject());
+    }
+    
     @Override
     public void check(PageValidation pageValidation, String objectName, SpecCentered spec) throws ValidationErrorException {
         PageElement mainObject = pageValidation.findPageElement(objectName);
@@ -16,62 +16,91 @@
 package net.mindengine.galen.validation.specs;
 
 import java.awt.Color;
-import java.awt.Rectangle;
-import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
 
 import net.mindengine.galen.config.GalenConfig;
 import net.mindengine.galen.page.PageElement;
+import net.mindengine.galen.page.PageScreenshot;
 import net.mindengine.galen.page.Rect;
+import net.mindengine.galen.page.ScreenshotColorIndex;
+import net.mindengine.galen.specs.Range;
 import net.mindengine.galen.specs.SpecColorScheme;
 import net.mindengine.galen.specs.colors.ColorRange;
 import net.mindengine.galen.validation.ErrorArea;
 import net.mindengine.galen.validation.PageValidation;
 import net.mindengine.galen.validation.SpecValidation;
 import net.mindengine.galen.validation.ValidationErrorException;
-import net.mindengine.rainbow4j.Rainbow4J;
-import net.mindengine.rainbow4j.Spectrum;
 
 public class SpecValidationColorScheme extends SpecValidation<SpecColorScheme> {
     
     private static final int PRECISION = GalenConfig.getConfig().getIntProperty("spec.colorscheme.precision", 256, 8, 256);
     private static final int TEST_RANGE = GalenConfig.getConfig().getIntProperty("spec.colorscheme.testrange", 6, 0, 256);
 
+    @Override
+    public List<String> getRequiredObjects(String objectName, SpecColorScheme spec) {
+        return Arrays.asList(objectName);
+    }
+    
     @Override
     public void check(PageValidation pageValidation, String objectName, SpecColorScheme spec) throws ValidationErrorException {
         PageElement mainObject = pageValidation.findPageElement(objectName);
         checkAvailability(mainObject, objectName);
 
         
-        BufferedImage pageImage = pageValidation.getPage().getScreenshotImage();
+        PageScreenshot screenshot = PageScreenshot.fromPage(pageValidation.getPage());
         
         Rect area = mainObject.getArea();
-        if (pageImage.getWidth() < area.getLeft() + area.getWidth() || pageImage.getHeight() < area.getTop() + area.getHeight()) {
-            throw new ValidationErrorException()
-                .withErrorArea(new ErrorArea(area, objectName))
-                .withMessage("Can't fetch image for \"object\" as it is outside of screenshot");
-        }
-        
-        
-        
-        
-        
-        Spectrum spectrum;
         try {
-            spectrum = Rainbow4J.readSpectrum(pageImage, new Rectangle(area.getLeft(), area.getTop(), area.getWidth(), area.getHeight()), PRECISION);
-        } catch (Exception e) {
+            if (screenshot == null) {
+                throw new IOException("Page doesn't have screenshot");
+            }
+            if (screenshot.getWidth() < area.getLeft() + area.getWidth() || screenshot.getHeight() < area.getTop() + area.getHeight()) {
+                throw new ValidationErrorException()
+                    .withErrorArea(new ErrorArea(area, objectName))
+                    .withMessage("Can't fetch image for \"object\" as it is outside of screenshot");
+            }
+        } catch (IOException e) {
             throw new ValidationErrorException(String.format("Couldn't fetch spectrum for \"%s\"", objectName));
         }
         
+        ScreenshotColorIndex colorIndex = screenshot.getColorIndex();
         List<String> messages = new LinkedList<String>();
+        int sampleSize = getSampleSize();
         
         for (ColorRange colorRange : spec.getColorRanges()) {
             Color color = colorRange.getColor();
-            int percentage = (int)spectrum.getPercentage(color.getRed(), color.getGreen(), color.getBlue(), TEST_RANGE);
+            int percentage;
+            int margin = 0;
+            try {
+                ScreenshotColorIndex.Estimate estimate = null;
+                if (sampleSize > 0) {
+                    estimate = colorIndex.estimatePercentage(area, color, TEST_RANGE, PRECISION, sampleSize);
+                    if (!estimate.isExact() && !isConclusive(estimate, colorRange.getRange())) {
+                        estimate = null;
+                    }
+                }
+                
+                if (estimate != null) {
+                    percentage = (int)estimate.getPercentage();
+                    margin = (int)Math.ceil(estimate.getMargin());
+                }
+                else {
+                    percentage = (int)colorIndex.getPercentage(area, color, TEST_RANGE, PRECISION);
+                }
+            } catch (Exception e) {
+                throw new ValidationErrorException(String.format("Couldn't fetch spectrum for \"%s\"", objectName));
+            }
             
             if (!colorRange.getRange().holds(percentage)) {
-                messages.add(String.format("color %s on \"%s\" is %d%% %s", toHexColor(color), objectName, (int)percentage, colorRange.getRange().getErrorMessageSuffix("%")));
+                if (margin > 0) {
+                    messages.add(String.format("color %s on \"%s\" is %d%% (\u00b1%d%%) %s", toHexColor(color), objectName, percentage, margin, colorRange.getRange().getErrorMessageSuffix("%")));
+                }
+                else {
+                    messages.add(String.format("color %s on \"%s\" is %d%% %s", toHexColor(color), objectName, percentage, colorRange.getRange().getErrorMessageSuffix("%")));
+                }
             }
         }
         
@@ -82,6 +111,29 @@ public class SpecValidationColorScheme extends SpecValidation<SpecColorScheme> {
         }
     }
 
+    /**
+     * Sample size is read on every check so that it could be changed between test runs
+     */
+    private int getSampleSize() {
+        return GalenConfig.getConfig().getIntProperty("spec.colorscheme.sampleSize", 0, 0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Checks that all percentages within confidence interval give the same validation result
+     */
+    private boolean isConclusive(ScreenshotColorIndex.Estimate estimate, Range range) {
+        int from = (int)Math.max(0, estimate.getPercentage() - estimate.getMargin());
+        int to = (int)Math.min(100, estimate.getPercentage() + estimate.getMargin());
+        
+        boolean holds = range.holds(from);
+        for (int percentage = from + 1; percentage <= to; percentage++) {
+            if (range.holds(percentage) != holds) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     private String toHexColor(Color color) {
         return String.format("#%02x%02x%02x", color.getRed(), color.getGreen(), color.getBlue());
     }
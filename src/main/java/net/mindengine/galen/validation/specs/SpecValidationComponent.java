@@ -20,12 +20,11 @@ import java.io.IOException;
 import java.util.List;
 
 import net.mindengine.galen.page.Page;
-import net.mindengine.galen.page.selenium.SeleniumPage;
 import net.mindengine.galen.parser.SyntaxException;
 import net.mindengine.galen.specs.SpecComponent;
 import net.mindengine.galen.specs.page.Locator;
 import net.mindengine.galen.specs.reader.page.PageSpec;
-import net.mindengine.galen.specs.reader.page.PageSpecReader;
+import net.mindengine.galen.specs.reader.page.PageSpecCache;
 import net.mindengine.galen.validation.PageValidation;
 import net.mindengine.galen.validation.SectionValidation;
 import net.mindengine.galen.validation.SpecValidation;
@@ -39,12 +38,11 @@ public class SpecValidationComponent extends SpecValidation<SpecComponent> {
     public void check(PageValidation pageValidation, String objectName, SpecComponent spec) throws ValidationErrorException {
         
         Page page = pageValidation.getPage();
-        if (!(page instanceof SeleniumPage)) {
-            throw new ValidationErrorException("Cannot perform component validations. Needs to be run in Selenium Browser");
-        }
-        
         Locator mainObjectLocator = pageValidation.getPageSpec().getObjectLocator(objectName);
         Page objectContextPage = page.createObjectContextPage(mainObjectLocator);
+        if (objectContextPage == null) {
+            throw new ValidationErrorException("Cannot perform component validations. Needs to be run in Selenium Browser");
+        }
         
         ValidationListener validationListener = pageValidation.getValidationListener();
         
@@ -53,10 +51,9 @@ public class SpecValidationComponent extends SpecValidation<SpecComponent> {
             throw new SyntaxException("Component spec file not found: " + file.getAbsolutePath());
         }
         
-        PageSpecReader pageSpecReader = new PageSpecReader(pageValidation.getBrowser());
         PageSpec componentPageSpec;
         try {
-            componentPageSpec = pageSpecReader.read(file);
+            componentPageSpec = PageSpecCache.get().read(file, pageValidation.getBrowser());
         } catch (IOException e) {
             throw new RuntimeException(e.getMessage(), e);
         }
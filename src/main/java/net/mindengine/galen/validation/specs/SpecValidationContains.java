@@ -17,6 +17,7 @@ package net.mindengine.galen.validation.specs;
 
 import static java.lang.String.format;
 
+import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -31,6 +32,11 @@ import net.mindengine.galen.validation.ValidationErrorException;
 
 public class SpecValidationContains extends SpecValidation<SpecContains> {
 
+    @Override
+    public List<String> getRequiredObjects(String objectName, SpecContains spec) {
+        return Arrays.asList(objectName);
+    }
+    
     @Override
     public void check(PageValidation pageValidation, String objectName, SpecContains spec) throws ValidationErrorException {
         PageElement mainObject = pageValidation.findPageElement(objectName);
@@ -15,6 +15,9 @@
 ******************************************************************************/
 package net.mindengine.galen.validation.specs;
 
+import java.util.Arrays;
+import java.util.List;
+
 import net.mindengine.galen.page.PageElement;
 import net.mindengine.galen.page.Rect;
 import net.mindengine.galen.specs.Range;
@@ -46,6 +49,11 @@ public class SpecValidationDirectionPosition extends SpecValidation<SpecDirectio
 		this.direction = direction;
 	}
 
+    @Override
+    public List<String> getRequiredObjects(String objectName, SpecDirectionPosition spec) {
+        return Arrays.asList(objectName, spec.getObject());
+    }
+    
 	@Override
 	public void check(PageValidation pageValidation, String objectName, SpecDirectionPosition spec) throws ValidationErrorException {
 		
@@ -17,6 +17,7 @@ package net.mindengine.galen.validation.specs;
 
 import static java.lang.String.format;
 
+import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -39,6 +40,11 @@ import net.mindengine.galen.validation.ValidationErrorException;
  */
 public abstract class SpecValidationGeneral<T extends SpecComplex> extends SpecValidation<T>{
 
+    @Override
+    public List<String> getRequiredObjects(String objectName, T spec) {
+        return Arrays.asList(objectName, spec.getObject());
+    }
+    
     @Override
     public void check(PageValidation pageValidation, String objectName, T spec) throws ValidationErrorException {
         PageElement mainObject = pageValidation.findPageElement(objectName);
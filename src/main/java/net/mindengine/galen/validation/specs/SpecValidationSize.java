@@ -16,6 +16,10 @@
 package net.mindengine.galen.validation.specs;
 
 import static java.lang.String.format;
+
+import java.util.Arrays;
+import java.util.List;
+
 import net.mindengine.galen.page.PageElement;
 import net.mindengine.galen.specs.Range;
 import net.mindengine.galen.specs.SpecRange;
@@ -26,6 +30,11 @@ import net.mindengine.galen.validation.ValidationErrorException;
 
 public abstract class SpecValidationSize<T extends SpecRange> extends SpecValidation<T> {
 
+    @Override
+    public List<String> getRequiredObjects(String objectName, T spec) {
+        return Arrays.asList(objectName);
+    }
+    
     @Override
     public void check(PageValidation pageValidation, String objectName, T spec) throws ValidationErrorException {
         PageElement mainObject = pageValidation.findPageElement(objectName);
@@ -17,6 +17,9 @@ package net.mindengine.galen.validation.specs;
 
 import static java.lang.String.format;
 import static java.util.Arrays.asList;
+
+import java.util.List;
+
 import net.mindengine.galen.page.PageElement;
 import net.mindengine.galen.page.Rect;
 import net.mindengine.galen.specs.SpecText;
@@ -27,6 +30,11 @@ import net.mindengine.galen.validation.ValidationErrorException;
 
 public class SpecValidationText extends SpecValidation<SpecText> {
 
+    @Override
+    public List<String> getRequiredObjects(String objectName, SpecText spec) {
+        return asList(objectName);
+    }
+    
     @Override
     public void check(PageValidation pageValidation, String objectName, SpecText spec) throws ValidationErrorException {
         
@@ -54,7 +62,7 @@ public class SpecValidationText extends SpecValidation<SpecText> {
             checkEnds(objectName, area, realText, spec.getText());
         }
         else if (spec.getType() == SpecText.Type.MATCHES) {
-            checkMatches(objectName, area, realText, spec.getText());
+            checkMatches(objectName, area, realText, spec);
         }
     }
 
@@ -70,9 +78,9 @@ public class SpecValidationText extends SpecValidation<SpecText> {
         }
     }
     
-    private void checkMatches(String objectName, Rect area, String realText, String text) throws ValidationErrorException {
-        if (!realText.matches(text)) {
-        	throw new ValidationErrorException(asList(new ErrorArea(area, objectName)), asList(format("\"%s\" text is \"%s\" but should match \"%s\"", objectName, realText, text)));
+    private void checkMatches(String objectName, Rect area, String realText, SpecText spec) throws ValidationErrorException {
+        if (!spec.getPattern().matcher(realText).matches()) {
+        	throw new ValidationErrorException(asList(new ErrorArea(area, objectName)), asList(format("\"%s\" text is \"%s\" but should match \"%s\"", objectName, realText, spec.getText())));
         }
     }
 
@@ -15,18 +15,32 @@
 ******************************************************************************/
 package net.mindengine.galen.validation.specs;
 
+import java.util.Arrays;
+import java.util.List;
+
 import net.mindengine.galen.page.PageElement;
 import net.mindengine.galen.specs.SpecVisible;
 import net.mindengine.galen.validation.PageValidation;
 import net.mindengine.galen.validation.SpecValidation;
+import net.mindengine.galen.validation.ValidationError;
 import net.mindengine.galen.validation.ValidationErrorException;
 
 public class SpecValidationVisible extends SpecValidation<SpecVisible> {
 
+    @Override
+    public List<String> getRequiredObjects(String objectName, SpecVisible spec) {
+        return Arrays.asList(objectName);
+    }
+    
     @Override
     public void check(PageValidation pageValidation, String objectName, SpecVisible spec) throws ValidationErrorException {
         PageElement mainObject = pageValidation.findPageElement(objectName);
         checkAvailability(mainObject, objectName);
     }
+    
+    @Override
+    public ValidationError validate(PageValidation pageValidation, String objectName, SpecVisible spec) {
+        return pageValidation.getAvailabilityError(objectName);
+    }
 
 }
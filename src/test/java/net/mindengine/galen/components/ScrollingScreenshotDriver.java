@@ -0,0 +1,258 @@
+/*******************************************************************************
+* Copyright 2014 Ivan Shubin http://mindengine.net
+* 
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+* 
+*   http://www.apache.org/licenses/LICENSE-2.0
+* 
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+******************************************************************************/
+package net.mindengine.galen.components;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.imageio.ImageIO;
+
+import org.openqa.selenium.Cookie;
+import org.openqa.selenium.Dimension;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.OutputType;
+import org.openqa.selenium.Point;
+import org.openqa.selenium.TakesScreenshot;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.logging.Logs;
+
+/**
+ * Emulates a browser window showing a tall page in its viewport.
+ * Screenshots are cut from the page image at current scroll position
+ * and all executed scripts are recorded so that tests can check the round trips to browser
+ */
+public class ScrollingScreenshotDriver extends DummyDriver implements TakesScreenshot, JavascriptExecutor {
+
+    private static final Pattern SCROLL_TO_PATTERN = Pattern.compile("window\\.scrollTo\\(0, (\\d+)\\);");
+    
+    private final BufferedImage page;
+    private final int chromeHeight;
+    private final int maxWindowHeight;
+    
+    private int windowHeight;
+    private int scroll = 0;
+    private int targetScroll = 0;
+    private int smoothScrollSteps = 0;
+    
+    private List<String> scripts = new LinkedList<String>();
+    private int screenshotsCount = 0;
+    private List<Dimension> resizes = new LinkedList<Dimension>();
+    
+    public ScrollingScreenshotDriver(BufferedImage page, int viewportHeight, int chromeHeight, int maxWindowHeight) {
+        this.page = page;
+        this.chromeHeight = chromeHeight;
+        this.maxWindowHeight = maxWindowHeight;
+        this.windowHeight = viewportHeight + chromeHeight;
+    }
+    
+    @Override
+    public <X> X getScreenshotAs(OutputType<X> target) throws WebDriverException {
+        screenshotsCount++;
+        int height = Math.min(getViewportHeight(), page.getHeight() - scroll);
+        BufferedImage viewport = page.getSubimage(0, scroll, page.getWidth(), height);
+        
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try {
+            ImageIO.write(viewport, "png", bytes);
+        }
+        catch (IOException e) {
+            throw new WebDriverException(e);
+        }
+        return target.convertFromPngBytes(bytes.toByteArray());
+    }
+    
+    @Override
+    public Object executeScript(String script, Object... args) {
+        scripts.add(script);
+        
+        if (script.startsWith("window.scrollTo(0, arguments[0]);")) {
+            scrollTo(((Number)args[0]).intValue());
+            return Arrays.asList((Object)(long)scroll, (long)getMaxScroll());
+        }
+        else if (script.contains("window.pageYOffset")) {
+            moveScroll();
+            return (long)scroll;
+        }
+        else if (script.contains("document.body.scrollHeight")) {
+            return (long)page.getHeight();
+        }
+        else if (script.equals("return window.innerHeight;")) {
+            return (long)getViewportHeight();
+        }
+        
+        Matcher matcher = SCROLL_TO_PATTERN.matcher(script);
+        if (matcher.matches()) {
+            scrollTo(Integer.parseInt(matcher.group(1)));
+            return null;
+        }
+        throw new WebDriverException("Unknown script: " + script);
+    }
+
+    @Override
+    public Object executeAsyncScript(String script, Object... args) {
+        throw new WebDriverException("Async scripts are not supported");
+    }
+    
+    private void scrollTo(int position) {
+        targetScroll = Math.max(0, Math.min(position, getMaxScroll()));
+        if (smoothScrollSteps > 0) {
+            moveScroll();
+        }
+        else {
+            scroll = targetScroll;
+        }
+    }
+    
+    /**
+     * Emulates smooth scrolling which moves the page only by a part of remaining distance at a time
+     */
+    private void moveScroll() {
+        if (smoothScrollSteps > 0 && scroll != targetScroll) {
+            int step = (targetScroll - scroll) / smoothScrollSteps;
+            if (step == 0) {
+                scroll = targetScroll;
+            }
+            else {
+                scroll += step;
+            }
+        }
+    }
+
+    private int getMaxScroll() {
+        return Math.max(0, page.getHeight() - getViewportHeight());
+    }
+
+    private int getViewportHeight() {
+        return windowHeight - chromeHeight;
+    }
+    
+    @Override
+    public Options manage() {
+        return new Options() {
+            @Override
+            public Window window() {
+                return new Window() {
+                    @Override
+                    public void setSize(Dimension targetSize) {
+                        resizes.add(targetSize);
+                        windowHeight = Math.min(targetSize.getHeight(), maxWindowHeight);
+                        scrollTo(scroll);
+                    }
+                    
+                    @Override
+                    public Dimension getSize() {
+                        return new Dimension(page.getWidth(), windowHeight);
+                    }
+                    
+                    @Override
+                    public void setPosition(Point targetPosition) {
+                    }
+                    
+                    @Override
+                    public Point getPosition() {
+                        return new Point(0, 0);
+                    }
+                    
+                    @Override
+                    public void maximize() {
+                    }
+                };
+            }
+            
+            @Override
+            public Timeouts timeouts() {
+                return null;
+            }
+            
+            @Override
+            public Logs logs() {
+                return null;
+            }
+            
+            @Override
+            public ImeHandler ime() {
+                return null;
+            }
+            
+            @Override
+            public Cookie getCookieNamed(String name) {
+                return null;
+            }
+            
+            @Override
+            public Set<Cookie> getCookies() {
+                return null;
+            }
+            
+            @Override
+            public void deleteCookieNamed(String name) {
+            }
+            
+            @Override
+            public void deleteCookie(Cookie cookie) {
+            }
+            
+            @Override
+            public void deleteAllCookies() {
+            }
+            
+            @Override
+            public void addCookie(Cookie cookie) {
+            }
+        };
+    }
+
+    public void setSmoothScrollSteps(int smoothScrollSteps) {
+        this.smoothScrollSteps = smoothScrollSteps;
+    }
+
+    public List<String> getScripts() {
+        return scripts;
+    }
+
+    public int getScreenshotsCount() {
+        return screenshotsCount;
+    }
+
+    public List<Dimension> getResizes() {
+        return resizes;
+    }
+
+    public int getWindowHeight() {
+        return windowHeight;
+    }
+
+    public int getScroll() {
+        return scroll;
+    }
+    
+    public int countScripts(String text) {
+        int count = 0;
+        for (String script : scripts) {
+            if (script.contains(text)) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
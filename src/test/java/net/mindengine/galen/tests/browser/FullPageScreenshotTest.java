@@ -0,0 +1,190 @@
+/*******************************************************************************
+* Copyright 2014 Ivan Shubin http://mindengine.net
+* 
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+* 
+*   http://www.apache.org/licenses/LICENSE-2.0
+* 
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+******************************************************************************/
+package net.mindengine.galen.tests.browser;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.sameInstance;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.Future;
+
+import javax.imageio.ImageIO;
+
+import net.mindengine.galen.components.ScrollingScreenshotDriver;
+import net.mindengine.galen.config.GalenConfig;
+import net.mindengine.galen.page.PageScreenshot;
+import net.mindengine.galen.utils.GalenUtils;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+public class FullPageScreenshotTest {
+
+    private static final String RESIZE_PROPERTY = "galen.browser.screenshots.fullPage.resize";
+    private static final String SCROLL_WAIT_PROPERTY = "galen.browser.screenshots.fullPage.scrollWait";
+    private static final String SCROLL_POSITION_SCRIPT = "return Math.round(window.pageYOffset);";
+    private static final String SCROLL_SCRIPT = "window.scrollTo(0, arguments[0]);";
+    
+    private static final int PAGE_WIDTH = 200;
+    private static final int PAGE_HEIGHT = 2950;
+    private static final int VIEWPORT_HEIGHT = 600;
+    private static final int CHROME_HEIGHT = 100;
+    
+    private static final int[] CHECKED_ROWS = {0, 1, 599, 600, 601, 1199, 1200, 1800, 2349, 2350, 2400, 2949};
+    
+    @AfterMethod
+    public void resetConfig() throws IOException {
+        System.clearProperty(RESIZE_PROPERTY);
+        System.clearProperty(SCROLL_WAIT_PROPERTY);
+        GalenConfig.getConfig().reset();
+    }
+    
+    @Test
+    public void shouldTakeSingleScreenshot_afterResizingWindow_byDefault() throws Exception {
+        ScrollingScreenshotDriver driver = new ScrollingScreenshotDriver(createPage(), VIEWPORT_HEIGHT, CHROME_HEIGHT, 10000);
+        
+        PageScreenshot screenshot = GalenUtils.makeFullPageScreenshot(driver);
+        
+        assertPageIsCaptured(screenshot);
+        assertThat(driver.getScreenshotsCount(), is(2));
+        assertThat(driver.getResizes().size(), is(2));
+        assertThat(driver.getResizes().get(0).getHeight(), is(PAGE_HEIGHT + CHROME_HEIGHT));
+        assertThat(driver.getWindowHeight(), is(VIEWPORT_HEIGHT + CHROME_HEIGHT));
+        assertThat(driver.countScripts(SCROLL_SCRIPT), is(0));
+    }
+    
+    @Test
+    public void shouldStitchScreenshot_whenWindowCannotBeResized_withoutWaitingForSettledScroll() throws Exception {
+        System.setProperty(SCROLL_WAIT_PROPERTY, "5000");
+        GalenConfig.getConfig().reset();
+        ScrollingScreenshotDriver driver = new ScrollingScreenshotDriver(createPage(), VIEWPORT_HEIGHT, CHROME_HEIGHT, VIEWPORT_HEIGHT + CHROME_HEIGHT);
+        
+        long startTime = System.currentTimeMillis();
+        PageScreenshot screenshot = GalenUtils.makeFullPageScreenshot(driver);
+        long duration = System.currentTimeMillis() - startTime;
+        
+        assertPageIsCaptured(screenshot);
+        assertThat(duration, lessThan(5000L));
+        
+        // tries single screenshot first and then scrolls to 600, 1200, 1800 and to the bottom at 2350
+        assertThat(driver.getResizes().size(), is(2));
+        assertThat(driver.countScripts(SCROLL_SCRIPT), is(4));
+        assertThat(driver.countScripts(SCROLL_POSITION_SCRIPT), is(0));
+        assertThat(driver.getScreenshotsCount(), is(6));
+        assertThat(driver.getScroll(), is(0));
+    }
+    
+    @Test
+    public void shouldStitchScreenshot_whenResizeIsDisabled() throws Exception {
+        System.setProperty(RESIZE_PROPERTY, "false");
+        GalenConfig.getConfig().reset();
+        ScrollingScreenshotDriver driver = new ScrollingScreenshotDriver(createPage(), VIEWPORT_HEIGHT, CHROME_HEIGHT, 10000);
+        
+        PageScreenshot screenshot = GalenUtils.makeFullPageScreenshot(driver);
+        
+        assertPageIsCaptured(screenshot);
+        assertThat(driver.getResizes().size(), is(0));
+        assertThat(driver.countScripts(SCROLL_SCRIPT), is(4));
+        assertThat(driver.getScreenshotsCount(), is(5));
+    }
+    
+    @Test
+    public void shouldWaitForScroll_onlyUntilItIsSettled_withSmoothScrolling() throws Exception {
+        System.setProperty(RESIZE_PROPERTY, "false");
+        System.setProperty(SCROLL_WAIT_PROPERTY, "1");
+        GalenConfig.getConfig().reset();
+        ScrollingScreenshotDriver driver = new ScrollingScreenshotDriver(createPage(), VIEWPORT_HEIGHT, CHROME_HEIGHT, 10000);
+        driver.setSmoothScrollSteps(2);
+        
+        PageScreenshot screenshot = GalenUtils.makeFullPageScreenshot(driver);
+        
+        assertPageIsCaptured(screenshot);
+        assertThat(driver.countScripts(SCROLL_POSITION_SCRIPT), greaterThan(0));
+    }
+    
+    @Test
+    public void shouldNotTakeFullPageScreenshot_whenPageFitsIntoViewport() throws Exception {
+        ScrollingScreenshotDriver driver = new ScrollingScreenshotDriver(createPage(), PAGE_HEIGHT, CHROME_HEIGHT, 10000);
+        
+        PageScreenshot screenshot = GalenUtils.makeFullPageScreenshot(driver);
+        
+        assertPageIsCaptured(screenshot);
+        assertThat(driver.getScreenshotsCount(), is(1));
+        assertThat(driver.getResizes().size(), is(0));
+    }
+    
+    @Test
+    public void shouldEncodeStitchedScreenshot_inBackground_onlyOnce() throws Exception {
+        ScrollingScreenshotDriver driver = new ScrollingScreenshotDriver(createPage(), VIEWPORT_HEIGHT, CHROME_HEIGHT, VIEWPORT_HEIGHT + CHROME_HEIGHT);
+        PageScreenshot screenshot = GalenUtils.makeFullPageScreenshot(driver);
+        
+        Future<File> pendingFile = screenshot.getFileInBackground();
+        assertThat(screenshot.getFileInBackground(), is(sameInstance(pendingFile)));
+        
+        File file = screenshot.getFile();
+        assertThat(file, is(pendingFile.get()));
+        
+        BufferedImage encodedImage = ImageIO.read(file);
+        assertThat(encodedImage.getWidth(), is(PAGE_WIDTH));
+        assertThat(encodedImage.getHeight(), is(PAGE_HEIGHT));
+        for (int y : CHECKED_ROWS) {
+            assertThat("Pixel at row " + y, encodedImage.getRGB(PAGE_WIDTH - 1, y) & 0xffffff, is(expectedRGB(PAGE_WIDTH - 1, y)));
+        }
+    }
+    
+    @Test
+    public void shouldReturnPathToPngFile_ofFullScreenshot() throws Exception {
+        ScrollingScreenshotDriver driver = new ScrollingScreenshotDriver(createPage(), VIEWPORT_HEIGHT, CHROME_HEIGHT, VIEWPORT_HEIGHT + CHROME_HEIGHT);
+        
+        String path = GalenUtils.makeFullScreenshot(driver);
+        
+        BufferedImage encodedImage = ImageIO.read(new File(path));
+        assertThat(encodedImage.getHeight(), is(PAGE_HEIGHT));
+        assertThat(encodedImage.getRGB(10, 2400) & 0xffffff, is(expectedRGB(10, 2400)));
+    }
+
+    private void assertPageIsCaptured(PageScreenshot screenshot) throws IOException {
+        assertThat(screenshot.getWidth(), is(PAGE_WIDTH));
+        assertThat(screenshot.getHeight(), is(PAGE_HEIGHT));
+        for (int y : CHECKED_ROWS) {
+            for (int x = 0; x < PAGE_WIDTH; x += 50) {
+                assertThat("Pixel at " + x + ", " + y, screenshot.getRGB(x, y) & 0xffffff, is(expectedRGB(x, y)));
+            }
+        }
+    }
+
+    /**
+     * Every row of the page has its own color so that misplaced parts of stitched screenshot are noticed
+     */
+    private BufferedImage createPage() {
+        BufferedImage page = new BufferedImage(PAGE_WIDTH, PAGE_HEIGHT, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < PAGE_HEIGHT; y++) {
+            for (int x = 0; x < PAGE_WIDTH; x++) {
+                page.setRGB(x, y, expectedRGB(x, y));
+            }
+        }
+        return page;
+    }
+
+    private int expectedRGB(int x, int y) {
+        return ((y % 256) << 16) | ((y / 256) << 8) | x;
+    }
+}
@@ -172,6 +172,21 @@ public class ArgumentParserTest {
                     .withExcludedTags()
                     .withPaths(asList("some1.spec", "some2.spec"))},
            
+            {args("recheck", "some1.spec", "some2.spec", "--snapshot", "snapshots/", "--include", "mobile"), 
+                new GalenArguments()
+                    .withAction("recheck")
+                    .withSnapshot("snapshots/")
+                    .withIncludedTags("mobile")
+                    .withExcludedTags()
+                    .withPaths(asList("some1.spec", "some2.spec"))},
+           
+            {args("compile", "specs/", "some.spec"), 
+                new GalenArguments()
+                    .withAction("compile")
+                    .withIncludedTags()
+                    .withExcludedTags()
+                    .withPaths(asList("specs/", "some.spec"))},
+           
             {args("config"), 
                 new GalenArguments()
                     .withAction("config")},
@@ -196,6 +211,12 @@ public class ArgumentParserTest {
     @DataProvider
     public Object[][] provideBadSamples() {
         return new Object[][]{
+          {"Missing snapshot", 
+              args("recheck", "some.spec")},
+          
+          {"Missing spec files", 
+              args("compile")},
+          
           {"Incorrect size: 123", 
               args("check", "some.spec", "--url", "http://example.com", "--size", "123")},
           
@@ -17,6 +17,7 @@ package net.mindengine.galen.tests.parser;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
 import net.mindengine.galen.parser.BashTemplate;
 import net.mindengine.galen.parser.BashTemplateJsFunctions;
 import net.mindengine.galen.suite.reader.Context;
@@ -58,6 +59,20 @@ public class BashTemplateTest {
             {new Context(), "There are ${count('testval1')} objects", "There are 12 objects"},
             {new Context(), "There are ${count(\"sdvdv\")*2 - 1} objects", "There are 29 objects"},
             {new Context().withParameter("qwe", 123), "Hi my age is ${qwe - 1}", "Hi my age is 122"},
+            {new Context().withParameter("name", "Sarah"), "Hi my name is ${name}", "Hi my name is Sarah"},
+            {new Context().withParameter("a", 1).withParameter("b", 2), "${a}${b}", "12"},
+            {new Context(), "There are no templates", "There are no templates"},
+            {new Context().withParameter("qwe", 11), "Hi my age is ${qwe - 1}", "Hi my age is 10"},
+            {new Context().withParameter("qwe", 11), "Max is ${Math.max(qwe, 20)}", "Max is 20"},
+            {new Context().withParameter("Math", 5), "Value is ${Math + 1}", "Value is 6"},
+            {new Context().withParameter("count", 5), "There are ${count('testval1')} objects", "There are 12 objects"},
+            {new Context(), "Assigned ${y = 5}", "Assigned 5"},
+            {new Context(), "Type is ${typeof y}", "Type is undefined"},
         };
     }
+    
+    @Test public void shouldReturnSameText_forLiteralTemplates() {
+        String templateText = "width: 100px";
+        assertThat(new BashTemplate(templateText, null).process(new Context()), is(sameInstance(templateText)));
+    }
 }
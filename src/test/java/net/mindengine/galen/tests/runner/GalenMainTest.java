@@ -17,6 +17,7 @@ package net.mindengine.galen.tests.runner;
 
 import static java.util.Arrays.asList;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.hasItems;
 import static org.hamcrest.Matchers.is;
@@ -26,15 +27,28 @@ import java.io.File;
 import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 
 import net.mindengine.galen.GalenMain;
+import net.mindengine.galen.components.DummyCompleteListener;
+import net.mindengine.galen.components.validation.MockedPage;
+import net.mindengine.galen.components.validation.MockedPageElement;
+import net.mindengine.galen.page.PageElement;
+import net.mindengine.galen.page.snapshot.PageSnapshot;
+import net.mindengine.galen.page.snapshot.PageSnapshotStorage;
 import net.mindengine.galen.runner.CompleteListener;
 import net.mindengine.galen.runner.GalenArguments;
+import net.mindengine.galen.runner.GalenPageRunner;
 import net.mindengine.galen.runner.GalenSuiteRunner;
+import net.mindengine.galen.specs.Spec;
+import net.mindengine.galen.specs.page.Locator;
+import net.mindengine.galen.specs.reader.page.PageSpec;
 import net.mindengine.galen.suite.GalenSuite;
 import net.mindengine.galen.tests.SuiteNameOnlyListener;
+import net.mindengine.galen.validation.PageValidation;
+import net.mindengine.galen.validation.ValidationError;
 
 import org.apache.commons.io.FileUtils;
 import org.testng.annotations.Test;
@@ -170,6 +184,89 @@ public class GalenMainTest {
         assertThat(testngReportContent, containsString("Error: There is no location defined\n    in " + pageSpec + ":10"));
     }
     
+    @SuppressWarnings("serial")
+    @Test public void shouldRecheck_specs_againstStoredPageSnapshot() throws Exception {
+        MockedPage page = new MockedPage(new HashMap<String, PageElement>(){{
+            put("header", new MockedPageElement(0, 0, 1000, 100));
+            put("menu", new MockedPageElement(0, 100, 1000, 40));
+        }});
+        PageSpec pageSpec = new PageSpec();
+        pageSpec.addObject("header", new Locator("id", "header"));
+        pageSpec.addObject("menu", new Locator("id", "menu"));
+        
+        File snapshotsDir = Files.createTempDir();
+        PageSnapshotStorage.save(snapshotsDir, "home-page", PageSnapshot.capture(page, asList(pageSpec)), "http://example.com", new Dimension(1024, 768));
+        
+        File specFile = new File(snapshotsDir, "recheck.spec");
+        FileUtils.writeStringToFile(specFile, "=====================\n"
+                + "header-with-corrections  @ (0, 0, -100, 0)  id  header\n"
+                + "menu                     id  menu\n"
+                + "=====================\n"
+                + "\n"
+                + "header-with-corrections\n"
+                + "    width: 900px\n"
+                + "    above: menu 0px\n"
+                + "\n"
+                + "menu\n"
+                + "    height: 50px\n");
+        
+        final List<String> errorMessages = new LinkedList<String>();
+        GalenMain galen = new GalenMain();
+        galen.setListener(new DummyCompleteListener() {
+            @Override
+            public void onSpecError(GalenPageRunner pageRunner, PageValidation pageValidation, String objectName, Spec spec, ValidationError error) {
+                errorMessages.addAll(error.getMessages());
+            }
+        });
+        
+        galen.execute(new GalenArguments()
+            .withAction("recheck")
+            .withPaths(asList(specFile.getAbsolutePath()))
+            .withSnapshot(snapshotsDir.getAbsolutePath()));
+        
+        assertThat(errorMessages, contains("\"menu\" height is 40px instead of 50px"));
+    }
+    
+    @SuppressWarnings("serial")
+    @Test public void shouldReportObjects_notCapturedInPageSnapshot_asErrors() throws Exception {
+        MockedPage page = new MockedPage(new HashMap<String, PageElement>(){{
+            put("header", new MockedPageElement(0, 0, 1000, 100));
+        }});
+        PageSpec pageSpec = new PageSpec();
+        pageSpec.addObject("header", new Locator("id", "header"));
+        
+        File snapshotsDir = Files.createTempDir();
+        PageSnapshotStorage.save(snapshotsDir, "home-page", PageSnapshot.capture(page, asList(pageSpec)), "http://example.com", new Dimension(1024, 768));
+        
+        File specFile = new File(snapshotsDir, "recheck.spec");
+        FileUtils.writeStringToFile(specFile, "=====================\n"
+                + "header   id  header\n"
+                + "banner   id  banner\n"
+                + "=====================\n"
+                + "\n"
+                + "header\n"
+                + "    width: 1000px\n"
+                + "\n"
+                + "banner\n"
+                + "    absent\n");
+        
+        final List<String> errorMessages = new LinkedList<String>();
+        GalenMain galen = new GalenMain();
+        galen.setListener(new DummyCompleteListener() {
+            @Override
+            public void onSpecError(GalenPageRunner pageRunner, PageValidation pageValidation, String objectName, Spec spec, ValidationError error) {
+                errorMessages.addAll(error.getMessages());
+            }
+        });
+        
+        galen.execute(new GalenArguments()
+            .withAction("recheck")
+            .withPaths(asList(specFile.getAbsolutePath()))
+            .withSnapshot(snapshotsDir.getAbsolutePath()));
+        
+        assertThat(errorMessages, contains("\"banner\" was not captured in page snapshot"));
+    }
+    
     @Test public void shouldGenerate_configFile() throws IOException {
         new GalenMain().performConfig();
         assertThat("config file should exist", new File("config").exists(), is(true));
@@ -26,11 +26,14 @@ import static org.hamcrest.Matchers.is;
 import java.io.File;
 import java.io.IOException;
 import java.util.List;
+import java.util.Map;
 
 import net.mindengine.galen.browser.SeleniumBrowser;
 import net.mindengine.galen.components.TestGroups;
 import net.mindengine.galen.components.validation.TestValidationListener;
+import net.mindengine.galen.page.PageElement;
 import net.mindengine.galen.page.selenium.SeleniumPage;
+import net.mindengine.galen.specs.page.Locator;
 import net.mindengine.galen.specs.page.PageSection;
 import net.mindengine.galen.specs.reader.page.PageSpec;
 import net.mindengine.galen.specs.reader.page.PageSpecReader;
@@ -548,6 +551,33 @@ public class GalenSeleniumTest {
     
     
     
+    @Test
+    public void shouldPrefetch_allObjects_sameAsFetchingThemOneByOne() throws IOException {
+        openDriverForNicePage();
+        
+        PageSpec pageSpec = new PageSpecReader(new SeleniumBrowser(driver)).read(getClass().getResourceAsStream("/html/page.spec"));
+        
+        driver.manage().window().setSize(new Dimension(1024, 1000));
+        
+        SeleniumPage prefetchedPage = new SeleniumPage(driver);
+        prefetchedPage.prefetchObjects(pageSpec.getObjects());
+        
+        SeleniumPage page = new SeleniumPage(driver);
+        
+        for (Map.Entry<String, Locator> object : pageSpec.getObjects().entrySet()) {
+            PageElement expectedElement = page.getObject(object.getKey(), object.getValue());
+            PageElement prefetchedElement = prefetchedPage.getObject(object.getKey(), object.getValue());
+            
+            assertThat("Presence of " + object.getKey() + " should be", prefetchedElement.isPresent(), is(expectedElement.isPresent()));
+            if (expectedElement.isPresent()) {
+                assertThat("Area of " + object.getKey() + " should be", prefetchedElement.getArea(), is(expectedElement.getArea()));
+                assertThat("Visibility of " + object.getKey() + " should be", prefetchedElement.isVisible(), is(expectedElement.isVisible()));
+                assertThat("Text of " + object.getKey() + " should be", prefetchedElement.getText(), is(expectedElement.getText()));
+            }
+        }
+    }
+    
+    
     private void openDriverForPage(String page) {
         driver.get("file://" + getClass().getResource("/html/" + page).getPath());
     }
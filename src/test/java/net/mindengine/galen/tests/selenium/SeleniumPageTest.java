@@ -0,0 +1,179 @@
+/*******************************************************************************
+* Copyright 2014 Ivan Shubin http://mindengine.net
+* 
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+* 
+*   http://www.apache.org/licenses/LICENSE-2.0
+* 
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+******************************************************************************/
+package net.mindengine.galen.tests.selenium;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.mindengine.galen.components.DummyDriver;
+import net.mindengine.galen.components.DummyWebElement;
+import net.mindengine.galen.page.PageElement;
+import net.mindengine.galen.page.Rect;
+import net.mindengine.galen.page.selenium.SeleniumPage;
+import net.mindengine.galen.specs.page.CorrectionsRect;
+import net.mindengine.galen.specs.page.Locator;
+import net.mindengine.galen.specs.reader.page.PageSpec;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.Dimension;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.Point;
+import org.openqa.selenium.WebElement;
+import org.testng.annotations.Test;
+
+public class SeleniumPageTest {
+
+    @Test
+    public void shouldApplyCorrections_onlyToSingleObjects() {
+        SeleniumPage page = new SeleniumPage(new DummyDriver() {
+            @Override
+            public List<WebElement> findElements(By by) {
+                return Arrays.<WebElement>asList(new DummyWebElement(10, 20, 100, 50), new DummyWebElement(10, 80, 100, 50));
+            }
+        });
+        CorrectionsRect corrections = CorrectionsRect.simpleCorrectionRect(5, 5, 0, 0);
+
+        Rect single = page.getObject("menu", new Locator("css", ".item").withCorrections(corrections)).getArea();
+        Rect indexed = page.getObject("item-2", new Locator("css", ".item", 2).withCorrections(corrections)).getArea();
+
+        assertThat(single, is(new Rect(15, 25, 100, 50)));
+        assertThat(indexed, is(new Rect(10, 80, 100, 50)));
+    }
+
+    @Test
+    public void shouldFindElementsOfMultiObject_onlyOncePerLocator() {
+        final List<WebElement> items = new ArrayList<WebElement>();
+        for (int i = 0; i < 200; i++) {
+            items.add(new DummyWebElement(10, i * 60, 100, 50));
+        }
+        final List<By> searches = new ArrayList<By>();
+        
+        SeleniumPage page = new SeleniumPage(new DummyDriver() {
+            @Override
+            public List<WebElement> findElements(By by) {
+                searches.add(by);
+                return items;
+            }
+        });
+        
+        PageSpec pageSpec = new PageSpec();
+        pageSpec.addMultiObject("card-*", new Locator("css", ".card"));
+        pageSpec.updateMultiObjects(page);
+        
+        for (int index = 1; index <= 200; index++) {
+            String objectName = "card-" + index;
+            PageElement element = page.getObject(objectName, pageSpec.getObjectLocator(objectName));
+            assertThat(element.getArea(), is(new Rect(10, (index - 1) * 60, 100, 50)));
+        }
+        
+        assertThat(searches.size(), is(1));
+    }
+
+    @Test
+    public void shouldPrefetchObjects_withSingleJavascriptCall() {
+        final List<Object> headerData = Arrays.<Object>asList(unreachableElement(), 10L, 20L, 300L, 40L, true, "Welcome");
+        final List<Object> itemData = Arrays.<Object>asList(unreachableElement(), 10L, 80L, 100L, 50L, false, "Second item");
+        final List<String> scripts = new ArrayList<String>();
+        
+        SeleniumPage page = new SeleniumPage(new JavascriptDriver() {
+            @SuppressWarnings("unchecked")
+            @Override
+            public Object executeScript(String script, Object... args) {
+                scripts.add(script);
+                List<Object> result = new ArrayList<Object>();
+                for (List<Object> locator : (List<List<Object>>) args[0]) {
+                    String key = locator.get(0) + " " + locator.get(1) + " " + locator.get(2);
+                    if ("css #header 0".equals(key)) {
+                        result.add(headerData);
+                    }
+                    else if ("css .item 2".equals(key)) {
+                        result.add(itemData);
+                    }
+                    else {
+                        result.add(null);
+                    }
+                }
+                return result;
+            }
+        });
+        
+        Map<String, Locator> objects = new LinkedHashMap<String, Locator>();
+        objects.put("header", new Locator("css", "#header").withCorrections(CorrectionsRect.simpleCorrectionRect(5, 5, 0, 0)));
+        objects.put("banner", new Locator("css", "#banner"));
+        objects.put("item-2", new Locator("css", ".item", 2));
+        
+        page.prefetchObjects(objects);
+        
+        PageElement header = page.getObject("header", objects.get("header"));
+        PageElement banner = page.getObject("banner", objects.get("banner"));
+        PageElement item = page.getObject("item-2", objects.get("item-2"));
+        
+        assertThat(header.isPresent(), is(true));
+        assertThat(header.getArea(), is(new Rect(15, 25, 300, 40)));
+        assertThat(header.isVisible(), is(true));
+        assertThat(header.getText(), is("Welcome"));
+        
+        assertThat(banner.isPresent(), is(false));
+        
+        assertThat(item.isPresent(), is(true));
+        assertThat(item.getArea(), is(new Rect(10, 80, 100, 50)));
+        assertThat(item.isVisible(), is(false));
+        assertThat(item.getText(), is("Second item"));
+        
+        assertThat(scripts.size(), is(1));
+    }
+
+    /**
+     * Element that fails on any request so that tests could make sure prefetched data is used instead
+     */
+    private WebElement unreachableElement() {
+        return new DummyWebElement(0, 0, 0, 0) {
+            @Override
+            public Point getLocation() {
+                throw new IllegalStateException("Location should have been prefetched");
+            }
+            @Override
+            public Dimension getSize() {
+                throw new IllegalStateException("Size should have been prefetched");
+            }
+            @Override
+            public boolean isDisplayed() {
+                throw new IllegalStateException("Visibility should have been prefetched");
+            }
+            @Override
+            public String getTagName() {
+                throw new IllegalStateException("Tag name should have been prefetched");
+            }
+            @Override
+            public String getText() {
+                throw new IllegalStateException("Text should have been prefetched");
+            }
+        };
+    }
+
+    private static abstract class JavascriptDriver extends DummyDriver implements JavascriptExecutor {
+        @Override
+        public Object executeAsyncScript(String script, Object... args) {
+            return null;
+        }
+    }
+}
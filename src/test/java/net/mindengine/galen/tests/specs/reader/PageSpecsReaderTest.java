@@ -21,14 +21,20 @@ import static net.mindengine.galen.specs.Side.LEFT;
 import static net.mindengine.galen.specs.Side.RIGHT;
 import static net.mindengine.galen.specs.Side.TOP;
 import static net.mindengine.galen.specs.Side.sides;
+import static net.mindengine.galen.specs.page.CorrectionsRect.simpleCorrectionRect;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.hamcrest.Matchers.endsWith;
 import static org.hamcrest.Matchers.hasEntry;
 import static org.hamcrest.Matchers.hasKey;
 import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
 import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
 
 import java.io.File;
 import java.io.IOException;
@@ -36,6 +42,7 @@ import java.util.List;
 import java.util.Map;
 
 import net.mindengine.galen.browser.Browser;
+import net.mindengine.galen.components.validation.MockedPage;
 import net.mindengine.galen.parser.FileSyntaxException;
 import net.mindengine.galen.specs.Location;
 import net.mindengine.galen.specs.Range;
@@ -50,11 +57,19 @@ import net.mindengine.galen.specs.page.ConditionalBlockStatement;
 import net.mindengine.galen.specs.page.Locator;
 import net.mindengine.galen.specs.page.ObjectSpecs;
 import net.mindengine.galen.specs.page.PageSection;
+import net.mindengine.galen.specs.reader.page.CompiledPageSpecStorage;
 import net.mindengine.galen.specs.reader.page.PageSpec;
+import net.mindengine.galen.specs.reader.page.PageSpecCache;
 import net.mindengine.galen.specs.reader.page.PageSpecReader;
+import net.mindengine.galen.validation.ValidationFactory;
+import net.mindengine.galen.validation.specs.SpecValidationNear;
+import net.mindengine.galen.validation.specs.SpecValidationWidth;
 
+import org.apache.commons.io.FileUtils;
 import org.testng.annotations.Test;
 
+import com.google.common.io.Files;
+
 public class PageSpecsReaderTest {
     
     private static final String BASE_TEST = "shouldLoadSpecSuccessfully";
@@ -175,6 +190,30 @@ public class PageSpecsReaderTest {
     }
 
     
+    @Test(dependsOnMethods = BASE_TEST)
+    public void shouldBindValidations_toSpecs_whenReadingThem() {
+        ObjectSpecs objectSpecs = pageSpec.getSections().get(0).getObjects().get(0);
+        List<Spec> specs = objectSpecs.getSpecs();
+        
+        assertThat(objectSpecs.getValidations(), hasSize(2));
+        assertThat(objectSpecs.getValidations().get(0), is(instanceOf(SpecValidationNear.class)));
+        assertThat(objectSpecs.getValidations().get(1), is(instanceOf(SpecValidationWidth.class)));
+        for (int i = 0; i < specs.size(); i++) {
+            assertThat(objectSpecs.getValidations().get(i) == ValidationFactory.getValidation(specs.get(i)), is(true));
+        }
+    }
+    
+    @Test
+    public void shouldNotGiveValidations_whenSpecsWereAddedWithoutThem() {
+        ObjectSpecs objectSpecs = new ObjectSpecs("menu");
+        SpecWidth spec = new SpecWidth(Range.exact(10));
+        objectSpecs.addSpec(spec, ValidationFactory.getValidation(spec));
+        assertThat(objectSpecs.getValidations(), hasSize(1));
+        
+        objectSpecs.getSpecs().add(new SpecWidth(Range.exact(20)));
+        assertThat(objectSpecs.getValidations(), is(nullValue()));
+    }
+    
     @Test(dependsOnMethods = BASE_TEST)
     public void shouldRead_allSpecs_withinSecondSection() {
         List<ObjectSpecs> objects = pageSpec.getSections().get(1).getObjects();
@@ -565,6 +604,192 @@ public class PageSpecsReaderTest {
     
     
 
+    @Test
+    public void shouldFindMatchingObjectNames_andUpdateThem_whenNewObjectsAreAdded() {
+        PageSpec pageSpec = new PageSpec();
+        pageSpec.addObject("menu-item-1", new Locator("css", "#menu li", 1));
+        pageSpec.addObject("menu-item-2", new Locator("css", "#menu li", 2));
+        pageSpec.addObject("menu", new Locator("css", "#menu"));
+        pageSpec.addObject("header-item-1", new Locator("css", "#header li"));
+        
+        assertThat(pageSpec.findMatchingObjectNames("menu-item-*"), containsInAnyOrder("menu-item-1", "menu-item-2"));
+        assertThat(pageSpec.findObjectNamesMatchingRegex(".*-item-.*"), hasSize(3));
+        
+        pageSpec.addObject("menu-item-3", new Locator("css", "#menu li", 3));
+        
+        assertThat(pageSpec.findMatchingObjectNames("menu-item-*"), containsInAnyOrder("menu-item-1", "menu-item-2", "menu-item-3"));
+        assertThat(pageSpec.findObjectNamesMatchingRegex(".*-item-.*"), hasSize(4));
+        assertThat(pageSpec.findObjectNamesMatchingRegex("menu|header-item-1"), containsInAnyOrder("menu", "header-item-1"));
+    }
+
+    @Test
+    public void shouldCachePageSpecs_untilSpecFileIsModified() throws IOException {
+        File file = File.createTempFile("galen-cached", ".spec");
+        file.deleteOnExit();
+        FileUtils.writeStringToFile(file, "==========\nmenu     css #menu\nmenu-item-*  css #menu li\n==========\n\nmenu\n    width: 100px\n");
+        
+        PageSpec first = PageSpecCache.get().read(file, null);
+        first.updateMultiObject(new MockedPage(), "extra-*", new Locator("css", ".extra"));
+        first.addObject("extra", new Locator("css", ".extra"));
+        
+        PageSpec second = PageSpecCache.get().read(file, null);
+        assertThat(second, is(not(sameInstance(first))));
+        assertThat(second.getObjects().keySet(), contains("menu"));
+        assertThat(second.getMultiObjects(), hasKey("menu-item-*"));
+        assertThat(second.getSections().get(0), is(sameInstance(first.getSections().get(0))));
+        
+        FileUtils.writeStringToFile(file, "==========\nheader     css #header\n==========\n");
+        
+        PageSpec third = PageSpecCache.get().read(file, null);
+        assertThat(third.getObjects().keySet(), contains("header"));
+        assertThat(third.getSections(), hasSize(0));
+    }
+
+    @Test
+    public void shouldNotUseCachedPageSpec_whenSystemPropertyUsedInTemplateIsChanged() throws IOException {
+        File file = File.createTempFile("galen-cached", ".spec");
+        file.deleteOnExit();
+        FileUtils.writeStringToFile(file, "==========\nheader  css  ${galen.test.cache.header}\n==========\n\nheader\n    width: 100px\n");
+        
+        System.setProperty("galen.test.cache.header", "#header");
+        try {
+            PageSpec first = PageSpecCache.get().read(file, null);
+            assertThat(first.getObjects(), hasEntry("header", new Locator("css", "#header")));
+            assertThat(PageSpecCache.get().read(file, null).getSections().get(0), is(sameInstance(first.getSections().get(0))));
+            
+            System.setProperty("galen.test.cache.header", "#new-header");
+            PageSpec second = PageSpecCache.get().read(file, null);
+            assertThat(second.getObjects(), hasEntry("header", new Locator("css", "#new-header")));
+            assertThat(second.getSections().get(0), is(not(sameInstance(first.getSections().get(0)))));
+        }
+        finally {
+            System.clearProperty("galen.test.cache.header");
+        }
+    }
+    
+    @Test
+    public void shouldNotCachePageSpec_withJavascriptInTemplates() throws IOException {
+        File file = File.createTempFile("galen-cached", ".spec");
+        file.deleteOnExit();
+        FileUtils.writeStringToFile(file, "==========\nheader  css  ${\"#head\" + \"er\"}\n==========\n\nheader\n    width: 100px\n");
+        
+        PageSpec first = PageSpecCache.get().read(file, null);
+        assertThat(first.getObjects(), hasEntry("header", new Locator("css", "#header")));
+        
+        PageSpec second = PageSpecCache.get().read(file, null);
+        assertThat(second.getObjects(), hasEntry("header", new Locator("css", "#header")));
+        assertThat(second.getSections().get(0), is(not(sameInstance(first.getSections().get(0)))));
+    }
+    
+    @Test
+    public void shouldReadPageSpec_onlyOnce_whenItCannotBeCached_becauseOfTemplatesAfterMultiObjects() throws IOException {
+        File file = File.createTempFile("galen-cached", ".spec");
+        file.deleteOnExit();
+        FileUtils.writeStringToFile(file, "==========\nmenu-item-*  css  #menu li\n==========\n"
+                + "# ${java.lang.System.setProperty(\"galen.test.cache.reads\", \"\" + (parseInt(java.lang.System.getProperty(\"galen.test.cache.reads\", \"0\")) + 1))}\n"
+                + "[1 - ${count(\"menu-item-*\")}]\nmenu-item-@\n    width: 100px\n");
+        
+        try {
+            PageSpecCache.get().read(file, null);
+            assertThat("Reads of the first call", System.getProperty("galen.test.cache.reads"), is("2"));
+            
+            PageSpecCache.get().read(file, null);
+            assertThat("Reads of the second call", System.getProperty("galen.test.cache.reads"), is("3"));
+        }
+        finally {
+            System.clearProperty("galen.test.cache.reads");
+        }
+    }
+
+    @Test
+    public void shouldLoadCompiledPageSpec_untilAnyOfItsSpecFilesIsModified() throws IOException {
+        File folder = Files.createTempDir();
+        File importedFile = new File(folder, "common.spec");
+        FileUtils.writeStringToFile(importedFile, "==========\nheader  @ (0, 0, -10, 5)  css  #header\n==========\n");
+        File file = new File(folder, "main.spec");
+        FileUtils.writeStringToFile(file, "@@ import common.spec\n"
+                + "@ Main | desktop\n"
+                + "[1 - 2]\n"
+                + "menu-item-@\n"
+                + "    width: 100px\n"
+                + "\n"
+                + "header\n"
+                + "    component: box.spec\n"
+                + "\n"
+                + "@@ if not\n"
+                + "header\n"
+                + "    visible\n"
+                + "@@ do\n"
+                + "header\n"
+                + "    absent\n"
+                + "@@ end\n"
+                + "==========\n"
+                + "menu-item-*  css  #menu li\n"
+                + "==========\n");
+        
+        File compiledFile = CompiledPageSpecStorage.compile(file);
+        assertThat(compiledFile, is(CompiledPageSpecStorage.compiledFileFor(file.getAbsoluteFile())));
+        
+        PageSpecReader reader = new PageSpecReader(null);
+        PageSpec compiled = CompiledPageSpecStorage.load(compiledFile, reader);
+        assertThat(compiled, is(notNullValue()));
+        assertThat(reader.getProcessedFiles(), containsInAnyOrder(file.getAbsolutePath(), importedFile.getAbsolutePath()));
+        assertThat(compiled.getObjects(), hasEntry("header", new Locator("css", "#header").withCorrections(simpleCorrectionRect(0, 0, -10, 5))));
+        assertThat(compiled.getMultiObjects(), hasEntry("menu-item-*", new Locator("css", "#menu li")));
+        
+        PageSection section = compiled.getSections().get(0);
+        assertThat(section.getName(), is("Main"));
+        assertThat(section.getTags(), contains("desktop"));
+        assertThat(section.getObjects(), hasSize(3));
+        assertThat(section.getObjects().get(1).getObjectName(), is("menu-item-2"));
+        assertThat(section.getObjects().get(1).getSpecs().get(0), is(instanceOf(SpecWidth.class)));
+        assertThat(section.getObjects().get(1).getValidations().get(0), is(instanceOf(SpecValidationWidth.class)));
+        assertThat(((SpecComponent)section.getObjects().get(2).getSpecs().get(0)).getSpecPath(), endsWith("box.spec"));
+        
+        ConditionalBlock block = section.getConditionalBlocks().get(0);
+        assertThat(block.getStatements().get(0).isInverted(), is(true));
+        assertThat(block.getBodyObjects().get(0).getSpecs().get(0), is(instanceOf(SpecAbsent.class)));
+        assertThat(block.getOtherwiseObjects(), is(nullValue()));
+        
+        // a compiled page spec is not loaded when any of its spec files was already read
+        assertThat(CompiledPageSpecStorage.load(compiledFile, reader), is(nullValue()));
+        
+        FileUtils.writeStringToFile(importedFile, "==========\nheader  css  #new-header\n==========\n");
+        assertThat(CompiledPageSpecStorage.load(compiledFile, new PageSpecReader(null)), is(nullValue()));
+        
+        PageSpec pageSpec = new PageSpecReader(null).read(file);
+        assertThat(pageSpec.getObjects(), hasEntry("header", new Locator("css", "#new-header")));
+        
+        // templates after multi objects depend on the checked page
+        FileUtils.writeStringToFile(file, "==========\nmenu-item-*  css  #menu li\n==========\n[1 - ${count(\"menu-item-*\")}]\nmenu-item-@\n    width: 100px\n");
+        assertThat(CompiledPageSpecStorage.compile(file), is(nullValue()));
+    }
+
+    @Test
+    public void shouldNotLoadCompiledPageSpec_whenSystemPropertyUsedInTemplateIsChanged() throws IOException {
+        File folder = Files.createTempDir();
+        File file = new File(folder, "main.spec");
+        FileUtils.writeStringToFile(file, "==========\nheader  css  ${galen.test.header}\n==========\n");
+        
+        System.setProperty("galen.test.header", "#header");
+        try {
+            File compiledFile = CompiledPageSpecStorage.compile(file);
+            PageSpec compiled = CompiledPageSpecStorage.load(compiledFile, new PageSpecReader(null));
+            assertThat(compiled.getObjects(), hasEntry("header", new Locator("css", "#header")));
+            
+            System.setProperty("galen.test.header", "#new-header");
+            assertThat(CompiledPageSpecStorage.load(compiledFile, new PageSpecReader(null)), is(nullValue()));
+            assertThat(new PageSpecReader(null).read(file).getObjects(), hasEntry("header", new Locator("css", "#new-header")));
+        }
+        finally {
+            System.clearProperty("galen.test.header");
+        }
+        
+        // javascript expressions could give different results on each reading
+        FileUtils.writeStringToFile(file, "==========\nheader  css  ${\"#\" + \"header\"}\n==========\n");
+        assertThat(CompiledPageSpecStorage.compile(file), is(nullValue()));
+    }
+
     private void assertChildComponentSpec(List<Spec> specs) {
         assertThat(specs.size(), is(1));
         SpecComponent spec = (SpecComponent) specs.get(0);
@@ -450,6 +450,13 @@ public class SpecsReaderTest {
         assertThat(spec.getType(), is(SpecText.Type.MATCHES));
     }
     
+    @Test
+    public void shouldReadSpec_withPatternCompiledOnlyOnce()  throws IOException {
+        SpecText spec = (SpecText)readSpec("text matches:  Some .* text ");
+        assertThat(spec.getPattern().matcher("Some long text").matches(), is(true));
+        assertThat(spec.getPattern(), Matchers.sameInstance(spec.getPattern()));
+    }
+    
     @Test 
     public void shouldReadSpec_above_object_20px()  throws IOException {
     	SpecAbove spec = (SpecAbove)readSpec("above: object 20px");
@@ -706,6 +713,18 @@ public class SpecsReaderTest {
         readSpec("centered horizontally inside: object 23 to 123px");
     }
     
+    @Test(expectedExceptions={SyntaxException.class}, expectedExceptionsMessageRegExp="Such constraint does not exist: widths") 
+    public void givesError_whenSpecKeyword_isUnknown() throws IOException {
+        readSpec("widths: 100px");
+    }
+    
+    @Test
+    public void shouldReadSpecs_withKeywordsThatAreNotSeparatedFromArguments() throws IOException {
+        SpecInside spec = (SpecInside) readSpec("insidepartly: object 10px left");
+        assertThat(spec.getObject(), is("object"));
+        assertThat(spec.getPartly(), is(true));
+    }
+    
     private Spec readSpec(String specText) throws IOException {
         return new SpecReader(NO_BROWSER).read(specText);
     }
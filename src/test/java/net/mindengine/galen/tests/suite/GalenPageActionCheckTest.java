@@ -16,6 +16,7 @@
 package net.mindengine.galen.tests.suite;
 
 import java.awt.Dimension;
+import java.io.File;
 import java.io.IOException;
 import java.util.Arrays;
 import java.util.HashMap;
@@ -27,11 +28,15 @@ import net.mindengine.galen.components.validation.MockedPage;
 import net.mindengine.galen.components.validation.MockedPageElement;
 import net.mindengine.galen.components.validation.TestValidationListener;
 import net.mindengine.galen.page.PageElement;
+import net.mindengine.galen.specs.page.Locator;
+import net.mindengine.galen.suite.GalenPageAction;
 import net.mindengine.galen.suite.GalenPageTest;
 import net.mindengine.galen.suite.actions.GalenPageActionCheck;
 
 import org.testng.annotations.Test;
 
+import com.google.common.io.Files;
+
 public class GalenPageActionCheckTest {
     
     
@@ -180,6 +185,61 @@ public class GalenPageActionCheckTest {
         , validationListener.getInvokations());
     }
     
-    
-    
+    @Test public void shouldFetchMultiObjects_forEachPage_whenPageSpecIsReused() throws IOException {
+        GalenPageActionCheck check = new GalenPageActionCheck();
+        check.setSpecs(Arrays.asList(getClass().getResource("/specs/spec-multi-objects.spec").getFile()));
+        
+        for (int itemsCount = 2; itemsCount <= 3; itemsCount++) {
+            MockedBrowser mockedBrowser = new MockedBrowser("http://galenframework.com", new Dimension(640, 480));
+            mockedBrowser.setMockedPage(pageWithMenuItems(itemsCount));
+            
+            TestValidationListener validationListener = new TestValidationListener();
+            check.execute(mockedBrowser, new GalenPageTest(), validationListener);
+            
+            String invokations = validationListener.getInvokations();
+            for (int index = 1; index <= itemsCount; index++) {
+                Assert.assertTrue(invokations.contains("<o menu-item-" + index + ">\n<SpecHeight menu-item-" + index + ">\n</o menu-item-" + index + ">\n"));
+            }
+            Assert.assertEquals(itemsCount, invokations.split("<o ").length - 1);
+        }
+    }
+
+    @Test public void shouldStore_separateSnapshots_forEachCheckOfPageTest() throws Exception {
+        File snapshotsDir = Files.createTempDir();
+        System.setProperty("galen.page.snapshot.store", snapshotsDir.getAbsolutePath());
+        try {
+            String specPath = getClass().getResource("/specs/spec-multi-objects.spec").getFile();
+            GalenPageActionCheck firstCheck = new GalenPageActionCheck().withSpecs(Arrays.asList(specPath));
+            GalenPageActionCheck secondCheck = new GalenPageActionCheck().withSpecs(Arrays.asList(specPath));
+            GalenPageTest pageTest = new GalenPageTest().withTitle("Home page")
+                    .withActions(Arrays.<GalenPageAction>asList(firstCheck, secondCheck));
+            
+            for (GalenPageAction check : pageTest.getActions()) {
+                MockedBrowser mockedBrowser = new MockedBrowser("http://galenframework.com", new Dimension(640, 480));
+                mockedBrowser.setMockedPage(pageWithMenuItems(2));
+                check.execute(mockedBrowser, pageTest, new TestValidationListener());
+            }
+        }
+        finally {
+            System.clearProperty("galen.page.snapshot.store");
+        }
+        
+        String[] snapshotFiles = snapshotsDir.list();
+        Arrays.sort(snapshotFiles);
+        Assert.assertEquals("[Home-page-640x480-1-spec-multi-objects.snapshot, Home-page-640x480-2-spec-multi-objects.snapshot]", Arrays.toString(snapshotFiles));
+    }
+
+    private MockedPage pageWithMenuItems(final int itemsCount) {
+        HashMap<String, PageElement> elements = new HashMap<String, PageElement>();
+        for (int index = 1; index <= itemsCount; index++) {
+            elements.put("menu-item-" + index, new MockedPageElement(0, index * 10, 100, 10));
+        }
+        return new MockedPage(elements) {
+            @Override
+            public int getObjectCount(Locator locator) {
+                return itemsCount;
+            }
+        };
+    }
+
 }
@@ -22,23 +22,43 @@ import static net.mindengine.galen.specs.Side.LEFT;
 import static net.mindengine.galen.specs.Side.RIGHT;
 import static net.mindengine.galen.specs.Side.TOP;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.notNullValue;
 import static org.hamcrest.Matchers.nullValue;
 
 import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import javax.imageio.ImageIO;
+
+import net.mindengine.galen.components.DummyCompleteListener;
 import net.mindengine.galen.components.validation.MockedAbsentPageElement;
 import net.mindengine.galen.components.validation.MockedInvisiblePageElement;
 import net.mindengine.galen.components.validation.MockedPage;
 import net.mindengine.galen.components.validation.MockedPageElement;
+import net.mindengine.galen.config.GalenConfig;
+import net.mindengine.galen.page.Page;
 import net.mindengine.galen.page.PageElement;
+import net.mindengine.galen.page.PageScreenshot;
 import net.mindengine.galen.page.Rect;
+import net.mindengine.galen.page.ScreenshotColorIndex;
+import net.mindengine.galen.page.TiledScreenshot;
+import net.mindengine.galen.page.snapshot.PageSnapshot;
+import net.mindengine.galen.parser.SyntaxException;
+import net.mindengine.galen.runner.GalenPageRunner;
 import net.mindengine.galen.specs.Alignment;
 import net.mindengine.galen.specs.Location;
 import net.mindengine.galen.specs.Range;
@@ -49,6 +69,7 @@ import net.mindengine.galen.specs.SpecAbsent;
 import net.mindengine.galen.specs.SpecBelow;
 import net.mindengine.galen.specs.SpecCentered;
 import net.mindengine.galen.specs.SpecColorScheme;
+import net.mindengine.galen.specs.SpecComponent;
 import net.mindengine.galen.specs.SpecContains;
 import net.mindengine.galen.specs.SpecHeight;
 import net.mindengine.galen.specs.SpecHorizontally;
@@ -60,13 +81,24 @@ import net.mindengine.galen.specs.SpecVertically;
 import net.mindengine.galen.specs.SpecVisible;
 import net.mindengine.galen.specs.SpecWidth;
 import net.mindengine.galen.specs.colors.ColorRange;
+import net.mindengine.galen.specs.page.ConditionalBlock;
+import net.mindengine.galen.specs.page.ConditionalBlockStatement;
 import net.mindengine.galen.specs.page.Locator;
+import net.mindengine.galen.specs.page.ObjectSpecs;
+import net.mindengine.galen.specs.page.PageSection;
 import net.mindengine.galen.specs.reader.page.PageSpec;
+import net.mindengine.galen.validation.BufferedValidationListener;
 import net.mindengine.galen.validation.ErrorArea;
 import net.mindengine.galen.validation.PageValidation;
+import net.mindengine.galen.validation.SectionValidation;
+import net.mindengine.galen.validation.SpecValidation;
 import net.mindengine.galen.validation.ValidationError;
+import net.mindengine.galen.validation.ValidationErrorException;
+import net.mindengine.galen.validation.ValidationListener;
 import net.mindengine.rainbow4j.Rainbow4J;
+import net.mindengine.rainbow4j.Spectrum;
 
+import org.apache.commons.io.FileUtils;
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
@@ -88,6 +120,194 @@ public class ValidationTest {
         assertThat(error, is(nullValue()));
     }
     
+    @SuppressWarnings("serial")
+    @Test
+    public void shouldPassColorSchemeValidation_withScreenshotDecodedInMemory() throws IOException {
+        byte[] bytes = FileUtils.readFileToByteArray(new File(getClass().getResource("/color-scheme-image-1.png").getFile()));
+        BufferedImage screenshotImage = new PageScreenshot(bytes).getImage();
+        
+        MockedPage page = page(new HashMap<String, PageElement>(){{
+            put("object", element(10, 10, 400, 300));
+        }}, screenshotImage);
+        
+        PageValidation validation = new PageValidation(null, page, createMockedPageSpec(page), null, null);
+        ValidationError error = validation.check("object", specColorScheme(new ColorRange(Color.white, between(46, 52)), new ColorRange(Color.black, between(34, 40))));
+        
+        assertThat(error, is(nullValue()));
+    }
+    
+    @SuppressWarnings("serial")
+    @Test
+    public void shouldPassColorSchemeValidation_forRedAndBlue_withScreenshotDecodedInMemory() throws IOException {
+        BufferedImage image = new BufferedImage(100, 100, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(Color.red);
+        graphics.fillRect(0, 0, 100, 60);
+        graphics.setColor(Color.blue);
+        graphics.fillRect(0, 60, 100, 40);
+        graphics.dispose();
+        
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", png);
+        BufferedImage screenshotImage = new PageScreenshot(png.toByteArray()).getImage();
+        
+        MockedPage page = page(new HashMap<String, PageElement>(){{
+            put("object", element(0, 0, 100, 100));
+        }}, screenshotImage);
+        
+        PageValidation validation = new PageValidation(null, page, createMockedPageSpec(page), null, null);
+        ValidationError error = validation.check("object", specColorScheme(new ColorRange(Color.red, between(59, 61)), new ColorRange(Color.blue, between(39, 41))));
+        
+        assertThat(error, is(nullValue()));
+    }
+    
+    @Test
+    public void shouldPassColorSchemeValidation_withRegionOfTiledScreenshot() throws IOException {
+        BufferedImage testImage = new PageScreenshot(loadTestImage()).getImage();
+        TiledScreenshot tiledScreenshot = new TiledScreenshot(testImage.getWidth(), testImage.getHeight() + 1000, testImage.getColorModel().hasAlpha());
+        tiledScreenshot.writeImage(testImage, 1000);
+        
+        BufferedImage region = tiledScreenshot.getRegion(new Rect(0, 1000, testImage.getWidth(), testImage.getHeight()));
+        assertThat(region.getRGB(15, 20), is(testImage.getRGB(15, 20)));
+        assertThat(region.getRGB(300, 200), is(testImage.getRGB(300, 200)));
+        for (int y = 0; y < testImage.getHeight(); y += 11) {
+            for (int x = 0; x < testImage.getWidth(); x += 7) {
+                assertThat(tiledScreenshot.getRGB(x, 1000 + y), is(testImage.getRGB(x, y) & 0xffffff));
+            }
+        }
+        
+        MockedPage page = page(new HashMap<String, PageElement>(){{
+            put("object", element(10, 10, 400, 300));
+        }}, region);
+        
+        PageValidation validation = new PageValidation(null, page, createMockedPageSpec(page), null, null);
+        ValidationError error = validation.check("object", specColorScheme(new ColorRange(Color.white, between(46, 52)), new ColorRange(Color.black, between(34, 40))));
+        
+        assertThat(error, is(nullValue()));
+    }
+    
+    @Test
+    public void shouldCalculateColorPercentage_sameAsSpectrum_whenUsingSummedAreaTables() throws IOException {
+        BufferedImage testImage = loadTestImage();
+        ScreenshotColorIndex colorIndex = new PageScreenshot(testImage).getColorIndex();
+        Rect[] areas = {new Rect(10, 10, 400, 300), new Rect(0, 0, testImage.getWidth(), testImage.getHeight()), new Rect(100, 50, 13, 200), new Rect(10, 10, 400, 300)};
+        Color[] colors = {Color.white, Color.black, Color.decode("#3A70D0")};
+        
+        // the same areas are checked twice so that the second time the percentage is taken from summed-area table
+        for (int i = 0; i < 2; i++) {
+            for (Rect area : areas) {
+                Spectrum spectrum = Rainbow4J.readSpectrum(testImage, new Rectangle(area.getLeft(), area.getTop(), area.getWidth(), area.getHeight()), 256);
+                for (Color color : colors) {
+                    assertThat(colorIndex.getPercentage(area, color, 6, 256), is(spectrum.getPercentage(color.getRed(), color.getGreen(), color.getBlue(), 6)));
+                }
+            }
+        }
+    }
+    
+    @Test
+    public void shouldDecodeTallScreenshot_stripByStrip() throws IOException {
+        BufferedImage tallImage = new BufferedImage(300, 7500, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < tallImage.getHeight(); y++) {
+            for (int x = 0; x < tallImage.getWidth(); x++) {
+                tallImage.setRGB(x, y, ((y * 7) & 0xff) << 16 | ((x * 3) & 0xff) << 8 | ((x + y) & 0xff));
+            }
+        }
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(tallImage, "png", png);
+        
+        PageScreenshot screenshot = new PageScreenshot(png.toByteArray());
+        assertThat(screenshot.getWidth(), is(300));
+        assertThat(screenshot.getHeight(), is(7500));
+        
+        BufferedImage region = screenshot.getRegion(new Rect(10, 2990, 50, 20));
+        for (int y = 0; y < region.getHeight(); y++) {
+            for (int x = 0; x < region.getWidth(); x++) {
+                assertThat(region.getRGB(x, y), is(tallImage.getRGB(10 + x, 2990 + y)));
+            }
+        }
+        for (int y = 0; y < tallImage.getHeight(); y += 97) {
+            assertThat(screenshot.getRGB(y % 300, y), is(tallImage.getRGB(y % 300, y) & 0xffffff));
+        }
+    }
+    
+    @Test
+    public void shouldBuildSummedAreaTables_forTallScreenshots() throws IOException {
+        BufferedImage tallImage = new BufferedImage(200, 25000, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < tallImage.getHeight(); y++) {
+            for (int x = 0; x < tallImage.getWidth(); x++) {
+                tallImage.setRGB(x, y, (x + y) % 3 == 0 ? 0xffffff : 0);
+            }
+        }
+        ScreenshotColorIndex colorIndex = new PageScreenshot(tallImage).getColorIndex();
+        Rect wholeImage = new Rect(0, 0, tallImage.getWidth(), tallImage.getHeight());
+        
+        colorIndex.getPercentage(wholeImage, Color.white, 6, 256);
+        assertThat(colorIndex.estimatePercentage(wholeImage, Color.white, 6, 256, 2000).isExact(), is(true));
+        
+        for (Rect area : new Rect[]{new Rect(7, 1000, 150, 3000), new Rect(0, 20000, 13, 4999), new Rect(50, 1023, 1, 2)}) {
+            long whitePixels = 0;
+            for (int y = area.getTop(); y < area.getTop() + area.getHeight(); y++) {
+                for (int x = area.getLeft(); x < area.getLeft() + area.getWidth(); x++) {
+                    if ((x + y) % 3 == 0) {
+                        whitePixels++;
+                    }
+                }
+            }
+            assertThat(colorIndex.getPercentage(area, Color.white, 6, 256), is(100.0f * whitePixels / ((long) area.getWidth() * area.getHeight())));
+        }
+    }
+    
+    @Test
+    public void shouldEstimateColorPercentage_fromSample_withinConfidenceInterval() throws IOException {
+        BufferedImage testImage = loadTestImage();
+        ScreenshotColorIndex colorIndex = new PageScreenshot(testImage).getColorIndex();
+        Rect area = new Rect(0, 0, testImage.getWidth(), testImage.getHeight());
+        
+        for (Color color : new Color[]{Color.white, Color.black, Color.decode("#3A70D0")}) {
+            ScreenshotColorIndex.Estimate estimate = colorIndex.estimatePercentage(area, color, 6, 256, 2000);
+            float exactPercentage = colorIndex.getPercentage(area, color, 6, 256);
+            
+            assertThat(estimate.isExact(), is(false));
+            assertThat(estimate.getMargin() < 5, is(true));
+            assertThat(Math.abs(estimate.getPercentage() - exactPercentage) <= estimate.getMargin(), is(true));
+        }
+    }
+    
+    @Test
+    public void shouldReportColorPercentage_withConfidenceInterval_whenSampledEstimateIsConclusive() throws IOException {
+        ValidationError error = checkWithSampleSize(2000, specColorScheme(new ColorRange(Color.black, between(10, 20))));
+        
+        assertThat(error, is(new ValidationError(areas(new ErrorArea(new Rect(10, 10, 400, 300), "object")),
+                messages("color #000000 on \"object\" is 36% (\u00b13%) which is not in range of 10 to 20%"))));
+    }
+    
+    @Test
+    public void shouldFallbackToExactCounting_whenSampledEstimateIsInconclusive() throws IOException {
+        ValidationError error = checkWithSampleSize(2000, specColorScheme(new ColorRange(Color.black, between(37, 40))));
+        
+        assertThat(error.getMessages(), contains("color #000000 on \"object\" is 36% which is not in range of 37 to 40%"));
+        
+        assertThat(checkWithSampleSize(2000, specColorScheme(new ColorRange(Color.black, between(35, 37)))), is(nullValue()));
+    }
+    
+    @SuppressWarnings("serial")
+    private ValidationError checkWithSampleSize(int sampleSize, SpecColorScheme spec) throws IOException {
+        System.setProperty("spec.colorscheme.sampleSize", Integer.toString(sampleSize));
+        GalenConfig.getConfig().reset();
+        try {
+            MockedPage page = page(new HashMap<String, PageElement>(){{
+                put("object", element(10, 10, 400, 300));
+            }}, loadTestImage());
+            
+            PageValidation validation = new PageValidation(null, page, createMockedPageSpec(page), null, null);
+            return validation.check("object", spec);
+        }
+        finally {
+            System.clearProperty("spec.colorscheme.sampleSize");
+            GalenConfig.getConfig().reset();
+        }
+    }
+    
     private BufferedImage loadTestImage() {
         try {
             return Rainbow4J.loadImage(getClass().getResource("/color-scheme-image-1.png").getFile());
@@ -106,6 +326,342 @@ public class ValidationTest {
         assertThat(error, is(expectedError));
     }
     
+    @Test(dataProvider="provideGoodSamples")
+    public void shouldPassValidation_onPageSnapshot(Spec spec, MockedPage page) {
+        PageSpec pageSpec = createMockedPageSpec(page);
+        Page snapshot = PageSnapshot.capture(page, Arrays.asList(pageSpec));
+        PageValidation validation = new PageValidation(null, snapshot, pageSpec, null, null);
+        ValidationError error = validation.check("object", spec);
+        
+        assertThat(error, is(nullValue()));
+    }
+    
+    @Test(dataProvider="provideBadSamples")
+    public void shouldGiveError_onPageSnapshot(ValidationError expectedError, Spec spec, MockedPage page) {
+        PageSpec pageSpec = createMockedPageSpec(page);
+        Page snapshot = PageSnapshot.capture(page, Arrays.asList(pageSpec));
+        PageValidation validation = new PageValidation(null, snapshot, pageSpec, null, null);
+        ValidationError error = validation.check("object", spec);
+        
+        assertThat(error, is(notNullValue()));
+        assertThat(error, is(expectedError));
+    }
+    
+    
+    @SuppressWarnings("serial")
+    @Test
+    public void shouldReportEvents_inSameOrder_whenValidatingPageSnapshot_inParallel() {
+        MockedPage page = page(new HashMap<String, PageElement>(){{
+            for (int i = 1; i <= 20; i++) {
+                put("object-" + i, element(10, 10 * i, 100, i));
+            }
+        }});
+        PageSpec pageSpec = createMockedPageSpec(page);
+        
+        List<ObjectSpecs> objects = new LinkedList<ObjectSpecs>();
+        for (int i = 1; i <= 20; i++) {
+            ObjectSpecs objectSpecs = new ObjectSpecs("object-" + i);
+            objectSpecs.getSpecs().add(new SpecHeight(Range.between(5, 15)));
+            objectSpecs.getSpecs().add(new SpecWidth(Range.exact(100)));
+            objects.add(objectSpecs);
+        }
+        PageSection section = new PageSection();
+        section.setObjects(objects);
+        
+        List<String> sequentialEvents = validateAndRecordEvents(PageSnapshot.capture(page, Arrays.asList(pageSpec)), pageSpec, section);
+        
+        System.setProperty("galen.validation.threads", "4");
+        List<String> parallelEvents;
+        try {
+            parallelEvents = validateAndRecordEvents(PageSnapshot.capture(page, Arrays.asList(pageSpec)), pageSpec, section);
+        }
+        finally {
+            System.clearProperty("galen.validation.threads");
+        }
+        
+        assertThat(parallelEvents.size(), is(20 * 4 + 1));
+        assertThat(parallelEvents, is(sequentialEvents));
+    }
+    
+    @SuppressWarnings("serial")
+    @Test
+    public void shouldValidateComponents_withLockedOriginPage_whenValidatingPageSnapshot_inParallel() {
+        final List<String> componentChecks = Collections.synchronizedList(new LinkedList<String>());
+        MockedPage page = new MockedPage(new HashMap<String, PageElement>(){{
+            for (int i = 1; i <= 6; i++) {
+                put("object-" + i, element(10, 10 * i, 100, 10));
+            }
+        }}) {
+            @Override
+            public Page createObjectContextPage(Locator mainObjectLocator) {
+                final Page originPage = this;
+                return new MockedPage(new HashMap<String, PageElement>(){{
+                    put("title", element(0, 0, 50, 10));
+                }}) {
+                    @Override
+                    public PageElement getObject(String objectName, Locator locator) {
+                        componentChecks.add(Thread.currentThread().getName().startsWith("galen-validation") + " " + Thread.holdsLock(originPage));
+                        return super.getObject(objectName, locator);
+                    }
+                };
+            }
+        };
+        PageSpec pageSpec = createMockedPageSpec(page);
+        
+        List<ObjectSpecs> objects = new LinkedList<ObjectSpecs>();
+        for (int i = 1; i <= 6; i++) {
+            ObjectSpecs objectSpecs = new ObjectSpecs("object-" + i);
+            objectSpecs.getSpecs().add(new SpecHeight(Range.exact(10)).withOriginalText("height: 10px"));
+            if (i % 3 == 2) {
+                SpecComponent specComponent = new SpecComponent();
+                specComponent.setSpecPath(getClass().getResource("/specs/components/simple-component.spec").getFile());
+                objectSpecs.getSpecs().add(specComponent.withOriginalText("component: simple-component.spec"));
+            }
+            objects.add(objectSpecs);
+        }
+        PageSection section = new PageSection();
+        section.setObjects(objects);
+        
+        List<String> sequentialEvents = validateAndRecordEvents(PageSnapshot.capture(page, Arrays.asList(pageSpec)), pageSpec, section);
+        componentChecks.clear();
+        
+        System.setProperty("galen.validation.threads", "4");
+        List<String> parallelEvents;
+        try {
+            parallelEvents = validateAndRecordEvents(PageSnapshot.capture(page, Arrays.asList(pageSpec)), pageSpec, section);
+        }
+        finally {
+            System.clearProperty("galen.validation.threads");
+        }
+        
+        assertThat(parallelEvents, is(sequentialEvents));
+        assertThat(parallelEvents.contains("errors 0"), is(true));
+        assertThat(componentChecks.isEmpty(), is(false));
+        assertThat(new HashSet<String>(componentChecks), is(Collections.singleton("false true")));
+    }
+    
+    @Test
+    public void shouldReplayAllEvents_andRethrowListenerException() {
+        BufferedValidationListener bufferedListener = new BufferedValidationListener();
+        bufferedListener.onObject(null, null, "object-1");
+        bufferedListener.onSpecSuccess(null, null, "object-1", new SpecWidth(Range.exact(100)));
+        bufferedListener.onAfterObject(null, null, "object-1");
+        
+        final List<String> events = new LinkedList<String>();
+        final RuntimeException listenerException = new RuntimeException("listener failed");
+        ValidationListener listener = new DummyCompleteListener() {
+            @Override
+            public void onObject(GalenPageRunner pageRunner, PageValidation validation, String objectName) {
+                events.add("object " + objectName);
+            }
+            @Override
+            public void onSpecSuccess(GalenPageRunner pageRunner, PageValidation validation, String objectName, Spec spec) {
+                throw listenerException;
+            }
+            @Override
+            public void onAfterObject(GalenPageRunner pageRunner, PageValidation validation, String objectName) {
+                events.add("after object " + objectName);
+            }
+        };
+        
+        RuntimeException thrownException = null;
+        try {
+            bufferedListener.replay(listener, null, null);
+        }
+        catch (RuntimeException e) {
+            thrownException = e;
+        }
+        
+        assertThat(thrownException, is(listenerException));
+        assertThat(events, is(Arrays.asList("object object-1", "after object object-1")));
+    }
+    
+    private List<String> validateAndRecordEvents(Page page, PageSpec pageSpec, PageSection section) {
+        final List<String> events = new LinkedList<String>();
+        final PageValidation pageValidation = new PageValidation(null, page, pageSpec, null, null);
+        ValidationListener listener = new DummyCompleteListener() {
+            @Override
+            public void onObject(GalenPageRunner pageRunner, PageValidation validation, String objectName) {
+                events.add("object " + objectName + (validation == pageValidation));
+            }
+            @Override
+            public void onAfterObject(GalenPageRunner pageRunner, PageValidation validation, String objectName) {
+                events.add("after object " + objectName + (validation == pageValidation));
+            }
+            @Override
+            public void onSpecSuccess(GalenPageRunner pageRunner, PageValidation validation, String objectName, Spec spec) {
+                events.add("success " + objectName + " " + spec.getOriginalText() + (validation == pageValidation));
+            }
+            @Override
+            public void onSpecError(GalenPageRunner pageRunner, PageValidation validation, String objectName, Spec spec, ValidationError error) {
+                events.add("error " + objectName + " " + error.getMessages() + (validation == pageValidation));
+            }
+        };
+        pageValidation.setValidationListener(listener);
+        
+        List<ValidationError> errors = new SectionValidation(Arrays.asList(section), pageValidation, listener).check();
+        events.add("errors " + errors.size());
+        return events;
+    }
+    
+    @SuppressWarnings("serial")
+    @Test
+    public void shouldCheckSpecs_withValidationsBoundWhenSpecsWereRead() {
+        MockedPage page = page(new HashMap<String, PageElement>(){{
+            put("object", element(10, 10, 100, 20));
+        }});
+        final List<String> checks = new LinkedList<String>();
+        SpecValidation<SpecWidth> boundValidation = new SpecValidation<SpecWidth>() {
+            @Override
+            public void check(PageValidation pageValidation, String objectName, SpecWidth spec) throws ValidationErrorException {
+                checks.add(objectName + " " + spec.getOriginalText());
+                throw new ValidationErrorException("bound validation");
+            }
+        };
+        
+        ObjectSpecs objectSpecs = new ObjectSpecs("object");
+        objectSpecs.addSpec(new SpecWidth(Range.exact(100)).withOriginalText("width: 100px"), boundValidation);
+        PageSection section = new PageSection();
+        section.setObjects(Arrays.asList(objectSpecs));
+        
+        PageValidation pageValidation = new PageValidation(null, page, createMockedPageSpec(page), null, null);
+        List<ValidationError> errors = new SectionValidation(Arrays.asList(section), pageValidation, null).check();
+        
+        assertThat(checks, contains("object width: 100px"));
+        assertThat(errors.size(), is(1));
+        assertThat(errors.get(0).getMessages(), contains("bound validation"));
+    }
+    
+    @Test
+    public void shouldNotCollectStackTrace_forValidationErrors() {
+        assertThat(new ValidationErrorException("some error").getStackTrace().length, is(0));
+    }
+    
+    @SuppressWarnings("serial")
+    @Test
+    public void shouldReportIncorrectPercentagePaths_withSameMessages_asBefore() {
+        MockedPage page = new MockedPage(new HashMap<String, PageElement>(){{
+            put("container", new MockedPageElement(0, 0, 400, 100));
+        }});
+        PageValidation pageValidation = new PageValidation(null, page, createMockedPageSpec(page), null, null);
+        
+        assertThat(percentageError(pageValidation, "container"), is("Value path is incorrect container"));
+        assertThat(percentageError(pageValidation, "container/width/"), is("Cannot read field: \"width/\""));
+        assertThat(percentageError(pageValidation, "container//width"), is("Cannot read field: \"/width\""));
+        assertThat(percentageError(pageValidation, "container/area/size/width"), is("Cannot read field: \"size\""));
+    }
+    
+    private String percentageError(PageValidation pageValidation, String valuePath) {
+        try {
+            pageValidation.convertRange(Range.exact(10.0).withPercentOf(valuePath));
+            return null;
+        }
+        catch (SyntaxException e) {
+            return e.getMessage();
+        }
+    }
+    
+    @SuppressWarnings("serial")
+    @Test
+    public void shouldResolvePercentageValue_onlyOnce_perPageValidation() {
+        final AtomicInteger widthRequests = new AtomicInteger(0);
+        MockedPage page = new MockedPage(new HashMap<String, PageElement>(){{
+            put("container", new MockedPageElement(0, 0, 400, 100) {
+                @Override
+                public int getWidth() {
+                    widthRequests.incrementAndGet();
+                    return super.getWidth();
+                }
+            });
+        }});
+        PageValidation pageValidation = new PageValidation(null, page, createMockedPageSpec(page), null, null);
+        
+        Range range = Range.between(10.0, 50.0).withPercentOf("container/width");
+        assertThat(pageValidation.convertRange(range), is(Range.between(40.0, 200.0)));
+        assertThat(pageValidation.convertRange(Range.exact(25.0).withPercentOf("container/width")), is(Range.exact(100.0)));
+        assertThat(widthRequests.get(), is(1));
+    }
+    
+    @SuppressWarnings("serial")
+    @Test
+    public void shouldEvaluateConditions_lazily_andReuseTheirResults() {
+        final AtomicInteger bannerRequests = new AtomicInteger(0);
+        final AtomicInteger logoRequests = new AtomicInteger(0);
+        MockedPage page = new MockedPage(new HashMap<String, PageElement>(){{
+            put("banner", new MockedPageElement(0, 0, 400, 100) {
+                @Override
+                public Rect getArea() {
+                    bannerRequests.incrementAndGet();
+                    return super.getArea();
+                }
+            });
+            put("logo", new MockedPageElement(0, 0, 50, 50) {
+                @Override
+                public Rect getArea() {
+                    logoRequests.incrementAndGet();
+                    return super.getArea();
+                }
+            });
+        }});
+        PageSpec pageSpec = createMockedPageSpec(page);
+        
+        PageSection section = new PageSection();
+        section.setObjects(new LinkedList<ObjectSpecs>());
+        for (int i = 0; i < 2; i++) {
+            ConditionalBlock block = new ConditionalBlock();
+            block.setStatements(Arrays.asList(
+                    conditionStatement("banner", new SpecWidth(exact(400)).withOriginalText("width: 400px")),
+                    conditionStatement("logo", new SpecWidth(exact(50)).withOriginalText("width: 50px"))));
+            block.setBodyObjects(Arrays.asList(objectSpecs("banner", new SpecWidth(exact(400)).withOriginalText("width: 400px"))));
+            section.addConditionalBlock(block);
+        }
+        
+        PageValidation pageValidation = new PageValidation(null, page, pageSpec, null, null);
+        List<ValidationError> errors = new SectionValidation(Arrays.asList(section), pageValidation, null).check();
+        
+        assertThat(errors.size(), is(0));
+        assertThat(bannerRequests.get(), is(1));
+        assertThat(logoRequests.get(), is(0));
+    }
+    
+    @SuppressWarnings("serial")
+    @Test
+    public void shouldFailAllSpecs_referencingAbsentObject_withoutQueryingItAgain() {
+        final AtomicInteger menuRequests = new AtomicInteger(0);
+        MockedPage page = new MockedPage(new HashMap<String, PageElement>(){{
+            put("menu", new MockedAbsentPageElement(0, 0, 100, 50));
+            put("button", element(10, 10, 20, 20));
+            put("logo", element(10, 60, 20, 20));
+        }}) {
+            @Override
+            public PageElement getObject(String objectName, Locator locator) {
+                if (objectName.equals("menu")) {
+                    menuRequests.incrementAndGet();
+                }
+                return super.getObject(objectName, locator);
+            }
+        };
+        PageValidation pageValidation = new PageValidation(null, page, createMockedPageSpec(page), null, null);
+        
+        ValidationError menuIsAbsent = new ValidationError(null, Arrays.asList("\"menu\" is absent on page"));
+        assertThat(pageValidation.check("menu", new SpecWidth(exact(100))), is(menuIsAbsent));
+        assertThat(pageValidation.check("button", specInside("menu", location(exact(10), LEFT))), is(menuIsAbsent));
+        assertThat(pageValidation.check("logo", specNear("menu", location(exact(10), BOTTOM))), is(menuIsAbsent));
+        assertThat(pageValidation.check("button", new SpecWidth(exact(20))), is(nullValue()));
+        assertThat(menuRequests.get(), is(1));
+    }
+    
+    private ConditionalBlockStatement conditionStatement(String objectName, Spec spec) {
+        ConditionalBlockStatement statement = new ConditionalBlockStatement();
+        statement.setObjects(Arrays.asList(objectSpecs(objectName, spec)));
+        return statement;
+    }
+    
+    private ObjectSpecs objectSpecs(String objectName, Spec spec) {
+        ObjectSpecs objectSpecs = new ObjectSpecs(objectName);
+        objectSpecs.getSpecs().add(spec);
+        return objectSpecs;
+    }
     
     private PageSpec createMockedPageSpec(MockedPage page) {
         PageSpec pageSpec = new PageSpec();
@@ -0,0 +1,6 @@
+===============================
+title        css    .title
+===============================
+
+title
+    height: 10px
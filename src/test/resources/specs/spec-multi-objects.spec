@@ -0,0 +1,7 @@
+===============================
+menu         id     menu
+menu-item-*  css    #menu li
+===============================
+
+menu-item-*
+    height: 10px